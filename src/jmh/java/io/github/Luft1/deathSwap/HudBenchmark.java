@@ -0,0 +1,59 @@
+package io.github.Luft1.deathSwap;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing one HUD frame: formatting the markup, parsing it with MiniMessage, and the
+ * cached lookup {@link SwapHud} actually does once per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HudBenchmark {
+
+    private static final int MAX_SECONDS = 120;
+
+    private SwapHud hud;
+    private long second;
+
+    @Setup
+    public void setUp() {
+        hud = new SwapHud(SwapHud.Mode.ACTION_BAR, MAX_SECONDS);
+    }
+
+    private long nextSecond() {
+        second = second >= MAX_SECONDS ? 0 : second + 1;
+        return second;
+    }
+
+    @Benchmark
+    public String formatFrame() {
+        return SwapHud.formatFrame(nextSecond(), MAX_SECONDS);
+    }
+
+    @Benchmark
+    public Component deserializeFrame() {
+        return MiniMessage.miniMessage().deserialize(SwapHud.formatFrame(nextSecond(), MAX_SECONDS));
+    }
+
+    @Benchmark
+    public Component cachedFrame() {
+        return hud.frame(nextSecond());
+    }
+}
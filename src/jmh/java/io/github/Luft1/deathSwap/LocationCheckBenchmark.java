@@ -0,0 +1,69 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Column evaluation in {@link SafeLocationChecker} against in-memory chunk data. Snapshot reads go
+ * through a dynamic proxy, so absolute numbers include that overhead; compare runs, not servers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationCheckBenchmark {
+
+    private static final int CHUNKS = 16;
+
+    private final SafeLocationChecker checker = new SafeLocationChecker(StandIns.terrain());
+    private World world;
+    private ChunkSnapshot[] snapshots;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        world = StandIns.world();
+        snapshots = new ChunkSnapshot[CHUNKS];
+        for (int i = 0; i < CHUNKS; i++) {
+            snapshots[i] = StandIns.snapshot(new StandIns.FakeChunk(i, -i, i));
+        }
+    }
+
+    @Benchmark
+    public Location column() {
+        int i = next++;
+        return checker.getSafeLocationInColumn(world, snapshots[i & (CHUNKS - 1)], (i >> 4) & 15, (i >> 8) & 15);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Location> wholeChunk() {
+        return checker.getSafeLocationsInChunk(world, snapshots[next++ & (CHUNKS - 1)]);
+    }
+
+    /**
+     * The Nether/End scan over the same terrain: every floor of the full 384-block column, with empty
+     * and solid sections skipped.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Location> wholeChunkCaves() {
+        return checker.getCaveLocationsInChunk(world, snapshots[next++ & (CHUNKS - 1)], StandIns.MIN_Y, StandIns.MAX_Y);
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.SplittableRandom;
+
+/**
+ * Lightweight stand-ins for the Bukkit types the benchmarks need, so they run without a server.
+ * <p>
+ * Only the methods the plugin actually calls are implemented; anything else throws, so a benchmark
+ * that starts touching more of the API fails loudly instead of measuring a default value.
+ */
+final class StandIns {
+
+    static final int MIN_Y = -64;
+    static final int MAX_Y = 320;
+
+    private StandIns() {
+    }
+
+    /**
+     * A world with the overworld's build limits.
+     */
+    static World world() {
+        return Proxies.proxy(World.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getMinHeight" -> MIN_Y;
+            case "getMaxHeight" -> MAX_Y;
+            case "getName" -> "bench";
+            case "getEnvironment" -> World.Environment.NORMAL;
+            default -> Proxies.objectMethod(proxy, method.getName(), args);
+        });
+    }
+
+    /**
+     * A snapshot backed by in-memory terrain. Biomes are reported as {@code null}, which
+     * {@link #terrain()} treats as safe; real biome constants need a server registry.
+     */
+    static ChunkSnapshot snapshot(FakeChunk chunk) {
+        return Proxies.proxy(ChunkSnapshot.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getX" -> chunk.chunkX;
+            case "getZ" -> chunk.chunkZ;
+            case "getHighestBlockYAt" -> chunk.highest((int) args[0], (int) args[1]);
+            case "getBlockType" -> chunk.get((int) args[0], (int) args[1], (int) args[2]);
+            case "getBiome" -> null;
+            case "isSectionEmpty" -> chunk.isSectionEmpty((int) args[0]);
+            default -> Proxies.objectMethod(proxy, method.getName(), args);
+        });
+    }
+
+    /**
+     * Block classification without registries: the handful of materials {@link FakeChunk} places.
+     */
+    static SafeLocationChecker.Terrain terrain() {
+        EnumSet<Material> skippable = EnumSet.of(Material.AIR, Material.OAK_LEAVES);
+        EnumSet<Material> nonSolid = EnumSet.of(Material.AIR, Material.WATER, Material.LAVA, Material.SHORT_GRASS, Material.FIRE);
+        return new SafeLocationChecker.Terrain() {
+            @Override
+            public boolean isSkippable(Material material) {
+                return skippable.contains(material);
+            }
+
+            @Override
+            public boolean isSolid(Material material) {
+                return !nonSolid.contains(material);
+            }
+
+            @Override
+            public boolean isUnsafeBiome(Biome biome) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * A 16x16 column grid of rolling hills with some trees, lava pools and overhangs, so the checker
+     * sees a realistic mix of accepted and rejected columns.
+     */
+    static final class FakeChunk {
+        private static final int HEIGHT = MAX_Y - MIN_Y;
+
+        final int chunkX;
+        final int chunkZ;
+        private final Material[] blocks = new Material[16 * 16 * HEIGHT];
+        private final int[] heightmap = new int[16 * 16];
+
+        FakeChunk(int chunkX, int chunkZ, long seed) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            SplittableRandom random = new SplittableRandom(seed);
+            Arrays.fill(blocks, Material.AIR);
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    int surface = 64 + (int) (8 * Math.sin((chunkX * 16 + x) / 9.0) * Math.cos((chunkZ * 16 + z) / 11.0));
+                    for (int y = MIN_Y; y < surface; y++) {
+                        set(x, y, z, Material.STONE);
+                    }
+                    int roll = random.nextInt(20);
+                    if (roll == 0) {
+                        set(x, surface, z, Material.LAVA);
+                    } else if (roll < 4) {
+                        // A tree: trunk topped by leaves, so the scan has to step down through the canopy.
+                        set(x, surface, z, Material.GRASS_BLOCK);
+                        for (int y = surface + 1; y < surface + 5; y++) set(x, y, z, Material.OAK_LOG);
+                        for (int y = surface + 5; y < surface + 8; y++) set(x, y, z, Material.OAK_LEAVES);
+                    } else if (roll == 4) {
+                        // Overhang: solid block two above the ground.
+                        set(x, surface, z, Material.GRASS_BLOCK);
+                        set(x, surface + 2, z, Material.STONE);
+                    } else {
+                        set(x, surface, z, Material.GRASS_BLOCK);
+                    }
+                    int top = MAX_Y - 1;
+                    while (top > MIN_Y && get(x, top, z) == Material.AIR) top--;
+                    heightmap[x * 16 + z] = top;
+                }
+            }
+        }
+
+        boolean isSectionEmpty(int section) {
+            int bottom = MIN_Y + (section << 4);
+            for (int y = bottom; y < bottom + 16; y++) {
+                for (int x = 0; x < 16; x++) {
+                    for (int z = 0; z < 16; z++) {
+                        if (get(x, y, z) != Material.AIR) return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        int highest(int x, int z) {
+            return heightmap[x * 16 + z];
+        }
+
+        Material get(int x, int y, int z) {
+            return blocks[((y - MIN_Y) * 16 + z) * 16 + x];
+        }
+
+        private void set(int x, int y, int z, Material material) {
+            blocks[((y - MIN_Y) * 16 + z) * 16 + x] = material;
+        }
+    }
+}
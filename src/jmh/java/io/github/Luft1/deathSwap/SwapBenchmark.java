@@ -0,0 +1,54 @@
+package io.github.Luft1.deathSwap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of deciding a swap: the derangement (now {@link SwapTopology}) and the weighted delay until
+ * the next swap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwapBenchmark {
+
+    @Param({"2", "10", "100", "1000", "10000"})
+    public int players;
+
+    @Param({"SINGLE_CYCLE", "PAIRWISE", "K_CYCLE"})
+    public SwapTopology.Mode mode;
+
+    private SwapTopology topology;
+
+    @Setup
+    public void setUp() {
+        topology = new SwapTopology(mode, 3);
+        // Grow the reused buffers outside the measurement, as they would be after the first swap.
+        topology.next(players);
+    }
+
+    @Benchmark
+    public int[] derangement() {
+        return topology.next(players);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int randomSwapTime() {
+        return SwapManager.getRandomSwapTimeWeighted();
+    }
+}
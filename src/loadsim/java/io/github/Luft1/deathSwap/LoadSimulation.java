@@ -0,0 +1,426 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless load simulation of one arena with hundreds to thousands of contestants. Runs offline as part of
+ * {@code mvn verify} and fails the build when the plugin stops scaling:
+ * <pre>
+ *     mvn verify                                            # 100, 1000 and 5000 players
+ *     mvn verify -Dloadsim.args="players=200,2000 ticks=6000"
+ *     mvn verify -Dloadsim.skip=true
+ * </pre>
+ * A real {@link SwapManager} with its clock, executor, pre-warmer, ticket manager and journal runs against
+ * {@link SimServer}, {@link SimWorld} and {@link SimPlayer}: chunks take a configurable time to load,
+ * contestants die at random (so rounds end by themselves), players quit and new ones join, and a new round
+ * starts shortly after the last one ended. Everything runs on one thread as fast as it can, so the time
+ * spent per simulated tick is what the plugin would cost the main thread. Time and allocations include the
+ * stand-ins' own overhead, which grows with the player count the same way the server's would.
+ * <p>
+ * For every player count it reports the time per tick, the bytes allocated per tick, the most futures
+ * outstanding at once and how many ticks each swap took from its first to its last teleport. By default it
+ * only gates on what does not depend on the machine or its load, and fails if
+ * <ul>
+ *     <li>a swap takes longer than its batches, one chunk load and {@value #SWAP_SLACK_TICKS} ticks of slack,</li>
+ *     <li>the bytes allocated per player and tick at the largest player count are more than
+ *     {@code maxAllocScaling} times those at the smallest one, i.e. the plugin grew worse than linear,</li>
+ *     <li>or no swap completed at all, since then nothing above was measured.</li>
+ * </ul>
+ * Wall-clock limits vary with the build machine, so they are opt-in: {@code maxTickMillis} fails the run
+ * if the 99th percentile tick takes longer, and {@code maxScaling} if the mean time per player grows by
+ * more than that factor. Both are off at 0. Arguments are {@code key=value} pairs, see {@link #DEFAULTS}.
+ */
+public final class LoadSimulation {
+
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "players", "100,1000,5000",
+            "ticks", "12000",
+            "chunkLoadMillis", "100",
+            "chunkLoadJitterMillis", "50",
+            // Wall-clock limits, 0 = off.
+            "maxTickMillis", "0",
+            "maxScaling", "0",
+            "maxAllocScaling", "4",
+            // Fraction of the players that leave (and are replaced by a new player) per minute.
+            "churnPerMinute", "0.02",
+            "seed", "1",
+            "dataFolder", "target/loadsim");
+
+    private static final int SPREAD_BLOCKS = 8000;
+    private static final long INTERMISSION_TICKS = 100;
+    // A round with N contestants is expected to be down to its last one after about this many ticks.
+    private static final double ROUND_TICKS = 6000;
+    // Ticks without any teleport after which a burst of teleports counts as finished.
+    private static final long QUIET_TICKS = 2;
+    private static final int SWAP_SLACK_TICKS = 20;
+
+    private static final Logger LOGGER = Logger.getLogger("DeathSwap-loadsim");
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private LoadSimulation() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                System.err.println("Unknown argument " + arg + ", expected key=value with a key out of " + DEFAULTS.keySet());
+                System.exit(2);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int[] sizes = Arrays.stream(options.get("players").split(",")).mapToInt(s -> Integer.parseInt(s.trim())).sorted().toArray();
+        long ticks = Long.parseLong(options.get("ticks"));
+        long loadTicks = (Long.parseLong(options.get("chunkLoadMillis")) + 49) / 50;
+        long jitterTicks = (Long.parseLong(options.get("chunkLoadJitterMillis")) + 49) / 50;
+        double maxTickMillis = Double.parseDouble(options.get("maxTickMillis"));
+        double maxScaling = Double.parseDouble(options.get("maxScaling"));
+        double maxAllocScaling = Double.parseDouble(options.get("maxAllocScaling"));
+        double churnPerMinute = Double.parseDouble(options.get("churnPerMinute"));
+        long seed = Long.parseLong(options.get("seed"));
+        File dataFolder = new File(options.get("dataFolder"));
+
+        LOGGER.setLevel(Level.WARNING);
+        FileConfiguration config = loadConfig();
+        int maxPerTick = Math.max(1, config.getInt("swap.max-teleports-per-tick", 20));
+        System.out.printf(Locale.ROOT, "Load simulation: %d ticks per run, chunk loads take %d-%d ticks, %d teleports per tick, seed %d%n",
+                ticks, Math.max(1, loadTicks), Math.max(1, loadTicks) + jitterTicks, maxPerTick, seed);
+
+        // Warm up the JIT, so the first measured run is not mostly interpreted.
+        new Scenario(config, dataFolder, sizes[0], Math.max(2000, ticks / 4), loadTicks, jitterTicks, churnPerMinute, seed).run();
+
+        List<String> failures = new ArrayList<>();
+        List<Result> results = new ArrayList<>();
+        for (int players : sizes) {
+            Result result = new Scenario(config, dataFolder, players, ticks, loadTicks, jitterTicks, churnPerMinute, seed).run();
+            results.add(result);
+            result.print(System.out);
+
+            if (maxTickMillis > 0 && result.tickCost.getPercentileMicros(99) > maxTickMillis * 1000) {
+                failures.add(String.format(Locale.ROOT, "%d players: p99 tick took %.1f ms, the limit is %.1f ms",
+                        players, result.tickCost.getPercentileMicros(99) / 1000.0, maxTickMillis));
+            }
+            long swapLimit = (players + maxPerTick - 1) / maxPerTick + result.maxLoadTicks + 1 + SWAP_SLACK_TICKS;
+            int slowestSwap = result.swapTicks.isEmpty() ? 0 : result.swapTicks.get(result.swapTicks.size() - 1);
+            if (result.swapTicks.isEmpty()) {
+                failures.add(players + " players: no swap completed in " + ticks + " ticks; run more ticks");
+            } else if (slowestSwap > swapLimit) {
+                failures.add(players + " players: a swap took " + slowestSwap + " ticks, the limit is " + swapLimit);
+            }
+        }
+        if (results.size() > 1) {
+            Result smallest = results.get(0);
+            Result largest = results.get(results.size() - 1);
+            double ratio = largest.nanosPerPlayer() / smallest.nanosPerPlayer();
+            System.out.printf(Locale.ROOT, "Time per player and tick grew %.2fx from %d to %d players (limit %s).%n",
+                    ratio, smallest.players, largest.players, maxScaling > 0 ? String.format(Locale.ROOT, "%.2fx", maxScaling) : "off");
+            if (maxScaling > 0 && ratio > maxScaling) {
+                failures.add(String.format(Locale.ROOT, "time per player grew %.2fx from %d to %d players, the limit is %.2fx",
+                        ratio, smallest.players, largest.players, maxScaling));
+            }
+            // Allocations are counted per thread, so they do not depend on the machine; without the counter there is nothing to compare.
+            if (THREADS != null) {
+                double allocRatio = largest.bytesPerPlayer() / Math.max(1e-9, smallest.bytesPerPlayer());
+                System.out.printf(Locale.ROOT, "Allocation per player and tick grew %.2fx from %d to %d players (limit %.2fx).%n",
+                        allocRatio, smallest.players, largest.players, maxAllocScaling);
+                if (allocRatio > maxAllocScaling) {
+                    failures.add(String.format(Locale.ROOT, "allocation per player grew %.2fx from %d to %d players, the limit is %.2fx",
+                            allocRatio, smallest.players, largest.players, maxAllocScaling));
+                }
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            System.out.println("Load simulation failed:");
+            failures.forEach(failure -> System.out.println("  " + failure));
+            System.exit(1);
+        }
+        System.out.println("Load simulation passed.");
+    }
+
+    /**
+     * The plugin's own default configuration, so the simulation runs with what servers get out of the box.
+     */
+    private static FileConfiguration loadConfig() throws Exception {
+        try (InputStream in = LoadSimulation.class.getClassLoader().getResourceAsStream("config.yml")) {
+            if (in == null) {
+                throw new IllegalStateException("config.yml is not on the classpath");
+            }
+            return YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * One run with a fixed number of players.
+     */
+    private static final class Scenario {
+        private final FileConfiguration config;
+        private final File dataFolder;
+        private final int players;
+        private final long ticks;
+        private final long loadTicks;
+        private final long jitterTicks;
+        private final double churnPerTick;
+        private final double deathsPerTick;
+        private final SplittableRandom random;
+
+        private SimServer sim;
+        private SimWorld world;
+        private SwapManager manager;
+        private final List<SimPlayer> online = new ArrayList<>();
+        private int joined;
+
+        private Scenario(FileConfiguration config, File dataFolder, int players, long ticks, long loadTicks,
+                         long jitterTicks, double churnPerMinute, long seed) {
+            this.config = config;
+            this.dataFolder = dataFolder;
+            this.players = players;
+            this.ticks = ticks;
+            this.loadTicks = loadTicks;
+            this.jitterTicks = jitterTicks;
+            this.churnPerTick = churnPerMinute / 1200.0;
+            // Exponential lifetimes: the last of N contestants is expected to die after ln(N) / rate ticks.
+            this.deathsPerTick = Math.log(Math.max(2, players)) / ROUND_TICKS;
+            this.random = new SplittableRandom(seed * 31 + players);
+        }
+
+        private Result run() throws ReflectiveOperationException {
+            sim = new SimServer(LOGGER);
+            SimServer.install(sim);
+            world = new SimWorld(sim, loadTicks, jitterTicks, random.split());
+            Plugin plugin = SimServer.plugin(LOGGER, config, dataFolder);
+            SwapMetrics metrics = new SwapMetrics(plugin);
+            Scheduling scheduling = new Scheduling(plugin);
+            ChunkTicketManager tickets = new ChunkTicketManager(plugin, "loadsim", world.world(), metrics,
+                    config.getInt("tickets.max-pinned-chunks", 512));
+            manager = new SwapManager(plugin, scheduling, metrics, "loadsim-" + players, new SimSpawns(), tickets);
+
+            for (int i = 0; i < players; i++) {
+                join();
+            }
+
+            Result result = new Result(players, world.getMaxLoadTicks());
+            long lastBusy = 0;
+            boolean placementNext = false;
+            long burstStart = -1;
+            long seenTeleports = 0;
+            for (long t = 0; t < ticks; t++) {
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+
+                sim.tick();
+                long now = sim.getTick();
+                if (manager.isRoundInProgress()) {
+                    lastBusy = now;
+                } else if (now - lastBusy >= INTERMISSION_TICKS) {
+                    List<Player> candidates = new ArrayList<>(online.size());
+                    online.forEach(p -> candidates.add(p.player()));
+                    if (manager.startRound(candidates)) {
+                        result.rounds++;
+                        placementNext = true;
+                    }
+                    lastBusy = now;
+                }
+                if (manager.getState() == SwapManager.RoundState.RUNNING) {
+                    result.eliminations += kill(poisson(deathsPerTick * online.size()));
+                }
+                churn(poisson(churnPerTick * online.size()));
+                move(now);
+                if (now % 200 == 0) {
+                    world.unloadIdle();
+                }
+
+                long cost = System.nanoTime() - start;
+                result.tickCost.recordNanos(cost);
+                result.totalNanos += cost;
+                result.totalAllocated += allocatedBytes() - allocatedBefore;
+
+                if (sim.teleportsIssued != seenTeleports) {
+                    seenTeleports = sim.teleportsIssued;
+                    if (burstStart < 0) burstStart = now;
+                }
+                if (burstStart >= 0 && sim.teleportsInFlight == 0 && now - sim.lastTeleportActivity >= QUIET_TICKS) {
+                    int duration = (int) (sim.lastTeleportActivity - burstStart + 1);
+                    if (placementNext) {
+                        result.placementTicks = Math.max(result.placementTicks, duration);
+                        placementNext = false;
+                    } else {
+                        result.swapTicks.add(duration);
+                    }
+                    burstStart = -1;
+                }
+            }
+            result.ticks = ticks;
+            result.peakPendingFutures = sim.getPeakPendingFutures();
+            result.tickets = tickets.getReport() + ", " + world.getLoadedChunkCount() + " chunks loaded";
+            result.metrics = metrics.describe();
+            result.swapTicks.sort(null);
+
+            manager.shutdown();
+            tickets.shutdown();
+            return result;
+        }
+
+        private void join() {
+            SimPlayer player = new SimPlayer(sim, world, "sim" + joined++, randomLocation());
+            online.add(player);
+            manager.handleJoin(player.player());
+        }
+
+        /**
+         * Kills up to {@code count} random online players that are contestants.
+         */
+        private int kill(int count) {
+            int killed = 0;
+            for (int i = 0; i < count && !online.isEmpty(); i++) {
+                SimPlayer victim = online.get(random.nextInt(online.size()));
+                if (manager.isContestant(victim.getId())) {
+                    manager.handleDeath(victim.player());
+                    killed++;
+                }
+            }
+            return killed;
+        }
+
+        /**
+         * {@code count} random players leave and as many new ones join.
+         */
+        private void churn(int count) {
+            for (int i = 0; i < count && !online.isEmpty(); i++) {
+                int index = random.nextInt(online.size());
+                SimPlayer leaving = online.get(index);
+                online.set(index, online.get(online.size() - 1));
+                online.remove(online.size() - 1);
+                leaving.disconnect();
+                manager.handleQuit(leaving.player());
+                join();
+            }
+        }
+
+        /**
+         * Every player takes a few steps once a second, spread evenly over the ticks.
+         */
+        private void move(long now) {
+            for (int i = (int) (now % 20); i < online.size(); i += 20) {
+                online.get(i).move(random.nextInt(-8, 9), random.nextInt(-8, 9));
+            }
+        }
+
+        private int poisson(double mean) {
+            // Knuth's method; the means here are small.
+            double limit = Math.exp(-mean);
+            double product = random.nextDouble();
+            int count = 0;
+            while (product > limit) {
+                count++;
+                product *= random.nextDouble();
+            }
+            return count;
+        }
+
+        private Location randomLocation() {
+            return new Location(world.world(), random.nextInt(-SPREAD_BLOCKS, SPREAD_BLOCKS) + 0.5, 64,
+                    random.nextInt(-SPREAD_BLOCKS, SPREAD_BLOCKS) + 0.5);
+        }
+
+        /**
+         * Spawns anywhere in the spread, available on the next tick; finding them is not what is simulated.
+         */
+        private final class SimSpawns implements SpawnSource {
+            @Override
+            public CompletableFuture<List<Location>> reserve(int count) {
+                List<Location> spawns = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    spawns.add(randomLocation());
+                }
+                return sim.completeLater(1, spawns);
+            }
+
+            @Override
+            public World getWorld() {
+                return world.world();
+            }
+        }
+    }
+
+    private static final class Result {
+        private final int players;
+        private final long maxLoadTicks;
+        private final LatencyHistogram tickCost = new LatencyHistogram();
+        private final List<Integer> swapTicks = new ArrayList<>();
+        private long ticks;
+        private long totalNanos;
+        private long totalAllocated;
+        private int rounds;
+        private int eliminations;
+        private int placementTicks;
+        private int peakPendingFutures;
+        private String tickets;
+        private List<String> metrics;
+
+        private Result(int players, long maxLoadTicks) {
+            this.players = players;
+            this.maxLoadTicks = maxLoadTicks;
+        }
+
+        private double nanosPerPlayer() {
+            return (double) totalNanos / ticks / players;
+        }
+
+        private double bytesPerPlayer() {
+            return (double) totalAllocated / ticks / players;
+        }
+
+        private void print(PrintStream out) {
+            double bytesPerTick = (double) totalAllocated / ticks;
+            out.printf(Locale.ROOT, "%n%d players, %d ticks, %d rounds, %d eliminations%n", players, ticks, rounds, eliminations);
+            out.println("  Tick cost: " + tickCost.summary());
+            out.printf(Locale.ROOT, "  Mean %.1f us per tick, %.1f ns per player%n", totalNanos / 1000.0 / ticks, nanosPerPlayer());
+            out.printf(Locale.ROOT, "  Allocated %s per tick (%.1f MB/s at 20 TPS)%n",
+                    THREADS != null ? String.format(Locale.ROOT, "%.1f KB", bytesPerTick / 1024) : "n/a",
+                    bytesPerTick * 20 / (1024 * 1024));
+            out.println("  Peak pending futures: " + peakPendingFutures);
+            out.println("  Swaps: " + swapTicks.size() + (swapTicks.isEmpty() ? "" : ", ticks from first to last teleport: p50 "
+                    + swapTicks.get(swapTicks.size() / 2) + ", max " + swapTicks.get(swapTicks.size() - 1))
+                    + "; slowest round placement " + placementTicks + " ticks");
+            out.println("  Tickets: " + tickets);
+            metrics.forEach(line -> out.println("  " + line));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.Luft1.deathSwap;
+
+import net.kyori.adventure.audience.Audience;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A connected player: a name, a position and whether they are online. Teleports wait for the
+ * destination chunk to load and then take one more tick, like {@code teleportAsync} on Paper. Messages,
+ * action bars and boss bars are accepted and dropped.
+ */
+final class SimPlayer {
+
+    private final SimServer sim;
+    private final SimWorld world;
+    private final UUID id = UUID.randomUUID();
+    private final String name;
+    private final Player player;
+    private Location location;
+    private boolean online = true;
+
+    SimPlayer(SimServer sim, SimWorld world, String name, Location location) {
+        this.sim = sim;
+        this.world = world;
+        this.name = name;
+        this.location = location;
+        world.touch(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        PlayerInventory inventory = Proxies.proxy(PlayerInventory.class, (proxy, method, args) -> switch (method.getName()) {
+            case "clear" -> null;
+            default -> Proxies.objectMethod(proxy, method.getName(), args);
+        });
+        this.player = Proxies.proxy(Player.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> id;
+            case "getName" -> name;
+            case "isOnline" -> online;
+            case "getLocation" -> this.location.clone();
+            case "getWorld" -> world.world();
+            case "teleportAsync" -> teleport((Location) args[0]);
+            case "getInventory" -> inventory;
+            case "getLastDamageCause" -> null;
+            case "setGameMode", "setHealth", "setFoodLevel", "setSaturation",
+                 "sendMessage", "sendActionBar", "showBossBar", "hideBossBar" -> null;
+            case "forEachAudience" -> {
+                @SuppressWarnings("unchecked")
+                Consumer<Audience> action = (Consumer<Audience>) args[0];
+                action.accept((Audience) proxy);
+                yield null;
+            }
+            default -> Proxies.objectMethod(proxy, method.getName(), args);
+        });
+    }
+
+    Player player() {
+        return player;
+    }
+
+    UUID getId() {
+        return id;
+    }
+
+    boolean isOnline() {
+        return online;
+    }
+
+    void disconnect() {
+        online = false;
+    }
+
+    /**
+     * Walks to a nearby block, keeping the chunk they end up in loaded.
+     */
+    void move(int dx, int dz) {
+        location = location.add(dx, 0, dz);
+        world.touch(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    private CompletableFuture<Boolean> teleport(Location destination) {
+        CompletableFuture<Boolean> result = sim.newFuture();
+        sim.teleportsInFlight++;
+        sim.teleportsIssued++;
+        sim.lastTeleportActivity = sim.getTick();
+        Location target = destination.clone();
+        world.load(target.getBlockX() >> 4, target.getBlockZ() >> 4).thenRun(() -> sim.at(1, () -> {
+            boolean arrived = online;
+            if (arrived) {
+                location = target;
+                world.touch(target.getBlockX() >> 4, target.getBlockZ() >> 4);
+            }
+            sim.teleportsInFlight--;
+            sim.lastTeleportActivity = sim.getTick();
+            sim.complete(result, arrived);
+        }));
+        return result;
+    }
+}
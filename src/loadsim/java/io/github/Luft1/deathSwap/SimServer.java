@@ -0,0 +1,174 @@
+package io.github.Luft1.deathSwap;
+
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * A single-threaded stand-in for the server: a tick counter, a queue of events due at later ticks and
+ * the global region scheduler, installed as the {@link Bukkit} server so {@link Scheduling} works unchanged.
+ * <p>
+ * The simulation thread is both the global region thread and the owner of every region, so everything
+ * the plugin would hand to another thread runs inline, as it does on classic Paper. Only the methods the
+ * plugin actually calls are implemented; anything else throws, so the simulation fails loudly when the
+ * plugin starts touching more of the API.
+ */
+final class SimServer {
+
+    private static SimServer current;
+
+    private final Thread thread = Thread.currentThread();
+    private final PriorityQueue<Event> queue = new PriorityQueue<>();
+    private final Logger logger;
+    private final GlobalRegionScheduler globalScheduler = Proxies.proxy(GlobalRegionScheduler.class, (proxy, method, args) -> switch (method.getName()) {
+        case "execute" -> {
+            at(1, (Runnable) args[1]);
+            yield null;
+        }
+        case "run" -> schedule(castTask(args[1]), 1, 0);
+        case "runDelayed" -> schedule(castTask(args[1]), (long) args[2], 0);
+        case "runAtFixedRate" -> schedule(castTask(args[1]), (long) args[2], (long) args[3]);
+        default -> Proxies.objectMethod(proxy, method.getName(), args);
+    });
+    private long tick;
+    private long sequence;
+    private int pendingFutures;
+    private int peakPendingFutures;
+
+    // Teleports for the swap latency measurement, see LoadSimulation.
+    int teleportsInFlight;
+    long teleportsIssued;
+    long lastTeleportActivity = -1;
+
+    SimServer(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Makes {@code sim} the server every {@link Bukkit} call goes to. The field is set directly because
+     * {@link Bukkit#setServer} only accepts one server per JVM and asks it for build information.
+     */
+    static void install(SimServer sim) throws ReflectiveOperationException {
+        if (current == null) {
+            Server server = Proxies.proxy(Server.class, (proxy, method, args) -> current.serverCall(proxy, method.getName(), args));
+            Field field = Bukkit.class.getDeclaredField("server");
+            field.setAccessible(true);
+            field.set(null, server);
+        }
+        current = sim;
+    }
+
+    long getTick() {
+        return tick;
+    }
+
+    int getPeakPendingFutures() {
+        return peakPendingFutures;
+    }
+
+    /**
+     * Advances to the next tick and runs every event that is due. Events scheduled while doing so land
+     * on later ticks.
+     */
+    void tick() {
+        tick++;
+        while (!queue.isEmpty() && queue.peek().tick() <= tick) {
+            queue.poll().action().run();
+        }
+    }
+
+    void at(long delayTicks, Runnable action) {
+        queue.add(new Event(tick + Math.max(1, delayTicks), sequence++, action));
+    }
+
+    /**
+     * A future that something in the simulated server will complete later, counted until it is.
+     */
+    <T> CompletableFuture<T> newFuture() {
+        pendingFutures++;
+        peakPendingFutures = Math.max(peakPendingFutures, pendingFutures);
+        return new CompletableFuture<>();
+    }
+
+    <T> void complete(CompletableFuture<T> future, T value) {
+        pendingFutures--;
+        future.complete(value);
+    }
+
+    <T> CompletableFuture<T> completeLater(long delayTicks, T value) {
+        CompletableFuture<T> future = newFuture();
+        at(delayTicks, () -> complete(future, value));
+        return future;
+    }
+
+    private Object serverCall(Object proxy, String name, Object[] args) {
+        return switch (name) {
+            case "isGlobalTickThread", "isOwnedByCurrentRegion", "isPrimaryThread" -> Thread.currentThread() == thread;
+            case "getGlobalRegionScheduler" -> globalScheduler;
+            case "getLogger" -> logger;
+            case "getName" -> "DeathSwap load simulation";
+            default -> Proxies.objectMethod(proxy, name, args);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<ScheduledTask> castTask(Object task) {
+        return (Consumer<ScheduledTask>) task;
+    }
+
+    private ScheduledTask schedule(Consumer<ScheduledTask> task, long delayTicks, long periodTicks) {
+        boolean[] cancelled = new boolean[1];
+        ScheduledTask handle = Proxies.proxy(ScheduledTask.class, (proxy, method, args) -> switch (method.getName()) {
+            case "cancel" -> {
+                boolean wasCancelled = cancelled[0];
+                cancelled[0] = true;
+                yield wasCancelled ? ScheduledTask.CancelledState.CANCELLED_ALREADY : ScheduledTask.CancelledState.CANCELLED_BY_CALLER;
+            }
+            case "isCancelled" -> cancelled[0];
+            case "isRepeatingTask" -> periodTicks > 0;
+            case "getExecutionState" -> cancelled[0] ? ScheduledTask.ExecutionState.CANCELLED : ScheduledTask.ExecutionState.IDLE;
+            default -> Proxies.objectMethod(proxy, method.getName(), args);
+        });
+        Runnable[] run = new Runnable[1];
+        run[0] = () -> {
+            if (cancelled[0]) return;
+            task.accept(handle);
+            if (periodTicks > 0 && !cancelled[0]) {
+                at(periodTicks, run[0]);
+            }
+        };
+        at(delayTicks, run[0]);
+        return handle;
+    }
+
+    /**
+     * The plugin as far as the arena classes need it: its name, logger, configuration and data folder.
+     */
+    static Plugin plugin(Logger logger, FileConfiguration config, File dataFolder) {
+        return Proxies.proxy(Plugin.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> "DeathSwap";
+            case "getLogger" -> logger;
+            case "getConfig" -> config;
+            case "getDataFolder" -> dataFolder;
+            case "isEnabled" -> true;
+            default -> Proxies.objectMethod(proxy, method.getName(), args);
+        });
+    }
+
+    private record Event(long tick, long sequence, Runnable action) implements Comparable<Event> {
+        @Override
+        public int compareTo(Event other) {
+            return tick != other.tick ? Long.compare(tick, other.tick) : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A flat, endless world whose chunks take a configurable number of ticks to load. Chunks stay loaded
+ * while they hold a plugin ticket or a player was in them recently, and are unloaded after that, so
+ * swaps and spawns pay the load latency the same way they would on a server.
+ */
+final class SimWorld {
+
+    static final int MIN_Y = -64;
+    static final int MAX_Y = 320;
+    // Ticks a chunk without tickets stays loaded after a player was last in it.
+    private static final long UNLOAD_AFTER_TICKS = 600;
+
+    private final SimServer sim;
+    private final long loadTicks;
+    private final long loadJitterTicks;
+    private final SplittableRandom random;
+    private final UUID id = UUID.randomUUID();
+    private final World world;
+    // Chunk key to the tick a player was last in it.
+    private final Map<Long, Long> loaded = new HashMap<>();
+    private final Map<Long, CompletableFuture<Object>> loading = new HashMap<>();
+    private final Set<Long> ticketed = new HashSet<>();
+
+    /**
+     * @param loadTicks       ticks a chunk load takes at least.
+     * @param loadJitterTicks extra ticks added at random, up to this many.
+     */
+    SimWorld(SimServer sim, long loadTicks, long loadJitterTicks, SplittableRandom random) {
+        this.sim = sim;
+        this.loadTicks = Math.max(1, loadTicks);
+        this.loadJitterTicks = Math.max(0, loadJitterTicks);
+        this.random = random;
+        this.world = Proxies.proxy(World.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> "loadsim";
+            case "getUID" -> id;
+            case "getMinHeight" -> MIN_Y;
+            case "getMaxHeight" -> MAX_Y;
+            case "getEnvironment" -> World.Environment.NORMAL;
+            case "isChunkLoaded" -> loaded.containsKey(ChunkTicketManager.chunkKey((int) args[0], (int) args[1]));
+            case "getChunkAtAsync" -> load((int) args[0], (int) args[1]);
+            case "addPluginChunkTicket" -> {
+                // A ticket loads the chunk in the background and keeps it loaded.
+                load((int) args[0], (int) args[1]);
+                yield ticketed.add(ChunkTicketManager.chunkKey((int) args[0], (int) args[1]));
+            }
+            case "removePluginChunkTicket" -> ticketed.remove(ChunkTicketManager.chunkKey((int) args[0], (int) args[1]));
+            default -> Proxies.objectMethod(proxy, method.getName(), args);
+        });
+    }
+
+    World world() {
+        return world;
+    }
+
+    long getMaxLoadTicks() {
+        return loadTicks + loadJitterTicks;
+    }
+
+    int getLoadedChunkCount() {
+        return loaded.size();
+    }
+
+    /**
+     * Loads the chunk, or returns the load already in flight. Completes with {@code null} since the plugin
+     * never looks at the chunk itself.
+     */
+    CompletableFuture<Object> load(int chunkX, int chunkZ) {
+        long key = ChunkTicketManager.chunkKey(chunkX, chunkZ);
+        if (loaded.containsKey(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Object> inFlight = loading.get(key);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        CompletableFuture<Object> future = sim.newFuture();
+        loading.put(key, future);
+        sim.at(loadTicks + (loadJitterTicks > 0 ? random.nextLong(loadJitterTicks + 1) : 0), () -> {
+            loading.remove(key);
+            loaded.put(key, sim.getTick());
+            sim.complete(future, null);
+        });
+        return future;
+    }
+
+    /**
+     * A player is standing in the chunk, which keeps it loaded (and loads it right away, as the
+     * player's own ticket would).
+     */
+    void touch(int chunkX, int chunkZ) {
+        loaded.put(ChunkTicketManager.chunkKey(chunkX, chunkZ), sim.getTick());
+    }
+
+    /**
+     * Unloads chunks that have neither a ticket nor had a player in them for a while.
+     */
+    void unloadIdle() {
+        long cutoff = sim.getTick() - UNLOAD_AFTER_TICKS;
+        Iterator<Map.Entry<Long, Long>> it = loaded.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Long> entry = it.next();
+            if (entry.getValue() < cutoff && !ticketed.contains(entry.getKey())) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.World;
+
+import java.util.concurrent.Executor;
+import java.util.function.IntSupplier;
+
+/**
+ * One independent Death Swap lobby: a world, its own round state and its own location pool.
+ * Arenas only share the worker threads used for location search.
+ */
+public class Arena {
+
+    private final DeathSwap plugin;
+    private final String name;
+    private final World world;
+    private final ChunkTicketManager tickets;
+    private final SafeLocationFinder finder;
+    private final SwapManager swapManager;
+    private final ChunkPregenerator pregenerator;
+
+    public Arena(DeathSwap plugin, String name, World world, Executor workers,
+                 int maxConcurrentSearches, IntSupplier expectedPlayers) {
+        this.plugin = plugin;
+        this.name = name;
+        this.world = world;
+        this.tickets = new ChunkTicketManager(plugin, name, world, plugin.getMetrics(),
+                plugin.getConfig().getInt("tickets.max-pinned-chunks", 512));
+        this.finder = new SafeLocationFinder(plugin, plugin.getScheduling(), plugin.getMetrics(), name, world, tickets,
+                workers, maxConcurrentSearches, expectedPlayers);
+        this.swapManager = new SwapManager(plugin, plugin.getScheduling(), plugin.getMetrics(), name, finder, tickets);
+        this.pregenerator = new ChunkPregenerator(plugin, plugin.getScheduling(), name, world, finder,
+                swapManager::isRoundInProgress, plugin.getConfig().getInt("pregen.max-in-flight", 8));
+    }
+
+    public void start() {
+        finder.initialize();
+        plugin.getServer().getPluginManager().registerEvents(swapManager, plugin);
+        pregenerator.resume();
+    }
+
+    public void shutdown() {
+        pregenerator.shutdown();
+        swapManager.shutdown();
+        finder.shutdown();
+        // Everything above has released its holds by now; whatever is left has leaked.
+        tickets.shutdown();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public ChunkTicketManager getTickets() {
+        return tickets;
+    }
+
+    public SafeLocationFinder getFinder() {
+        return finder;
+    }
+
+    public SwapManager getSwapManager() {
+        return swapManager;
+    }
+
+    public ChunkPregenerator getPregenerator() {
+        return pregenerator;
+    }
+}
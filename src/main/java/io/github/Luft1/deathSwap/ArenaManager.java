@@ -0,0 +1,195 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the configured arenas, owns the worker pool they share and routes players to their arena.
+ * <p>
+ * A player belongs to the arena whose running round they are a contestant in; otherwise to the arena
+ * of the world they are in; otherwise to the default arena. Whenever a player joins or changes world
+ * they are handed to that arena and forgotten by every other one, so spectators follow the world they
+ * are in. Routing reads round state, so it runs on the global region thread.
+ */
+public class ArenaManager implements Listener {
+
+    private static final String DEFAULT_ARENA = "default";
+
+    private final DeathSwap plugin;
+    private final Map<String, Arena> arenas = new LinkedHashMap<>();
+    private ExecutorService workers;
+    private Arena defaultArena;
+
+    public ArenaManager(DeathSwap plugin) {
+        this.plugin = plugin;
+    }
+
+    public void load() {
+        FileConfiguration config = plugin.getConfig();
+        int threads = config.getInt("workers.threads", 0);
+        if (threads <= 0) {
+            threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "DeathSwap-Worker-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        ConfigurationSection section = config.getConfigurationSection("arenas");
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection arenaSection = section.getConfigurationSection(name);
+                if (arenaSection == null) continue;
+                createArena(name, arenaSection.getString("world"), arenaSection.getInt("max-concurrent-searches", 4));
+            }
+        }
+        if (arenas.isEmpty()) {
+            createArena(DEFAULT_ARENA, null, 4);
+        }
+
+        defaultArena = getArena(config.getString("default-arena", DEFAULT_ARENA));
+        if (defaultArena == null) {
+            defaultArena = arenas.values().iterator().next();
+        }
+        plugin.getLogger().info("Loaded " + arenas.size() + " arena(s) sharing " + threads + " worker threads. Default arena: " + defaultArena.getName());
+
+        arenas.values().forEach(Arena::start);
+        // Players already online (e.g. after a reload) are admitted as if they had just joined.
+        plugin.getScheduling().runGlobal(() ->
+                Bukkit.getOnlinePlayers().forEach(this::route));
+    }
+
+    public void shutdown() {
+        arenas.values().forEach(Arena::shutdown);
+        arenas.clear();
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                    workers.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public Arena getArena(String name) {
+        return name == null ? null : arenas.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public Arena getDefaultArena() {
+        return defaultArena;
+    }
+
+    public Collection<Arena> getArenas() {
+        return Collections.unmodifiableCollection(arenas.values());
+    }
+
+    public Arena arenaOf(Player player) {
+        UUID id = player.getUniqueId();
+        for (Arena arena : arenas.values()) {
+            // Only a running round holds on to a player; spectators and disconnected players follow their world.
+            SwapManager swapManager = arena.getSwapManager();
+            if (swapManager.isRoundInProgress() && swapManager.isContestant(id)) {
+                return arena;
+            }
+        }
+        for (Arena arena : arenas.values()) {
+            if (arena.getWorld().equals(player.getWorld())) {
+                return arena;
+            }
+        }
+        return defaultArena;
+    }
+
+    /**
+     * @return the online players that would take part if a round started in this arena now.
+     */
+    public List<Player> playersFor(Arena arena) {
+        List<Player> players = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (arenaOf(player) == arena) {
+                players.add(player);
+            }
+        }
+        return players;
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        // Fired on the player's region thread on Folia.
+        plugin.getScheduling().runGlobal(() -> route(player));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        plugin.getScheduling().runGlobal(() -> route(player));
+    }
+
+    /**
+     * Hands the player to the arena they belong to now and drops their entries in every other arena.
+     */
+    private void route(Player player) {
+        Arena target = arenaOf(player);
+        for (Arena arena : arenas.values()) {
+            if (arena != target) {
+                arena.getSwapManager().handleLeaveArena(player.getUniqueId());
+            }
+        }
+        target.getSwapManager().handleJoin(player);
+    }
+
+    private void createArena(String name, String worldName, int maxConcurrentSearches) {
+        String key = name.toLowerCase(Locale.ROOT);
+        World world = worldName == null ? Bukkit.getWorlds().getFirst() : Bukkit.getWorld(worldName);
+        if (world == null) {
+            plugin.getLogger().info("Loading world " + worldName + " for arena " + name);
+            world = new WorldCreator(worldName).createWorld();
+        }
+        if (world == null) {
+            plugin.getLogger().warning("Skipping arena " + name + ": world " + worldName + " could not be loaded.");
+            return;
+        }
+        for (Arena other : arenas.values()) {
+            // The location index and sample map are stored per world, so two arenas cannot share one.
+            if (other.getWorld().equals(world)) {
+                plugin.getLogger().warning("Skipping arena " + name + ": world " + world.getName() + " is already used by arena " + other.getName() + ".");
+                return;
+            }
+        }
+        arenas.put(key, new Arena(plugin, key, world, workers, maxConcurrentSearches, () -> countPlayersFor(key)));
+    }
+
+    private int countPlayersFor(String key) {
+        Arena arena = arenas.get(key);
+        return arena == null ? 0 : playersFor(arena).size();
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.generator.BiomeProvider;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rejects candidate chunks by asking the world's biome source, before the chunk is ever requested.
+ * <p>
+ * The biome source is pure noise sampling, so it neither loads nor generates terrain and can be
+ * queried from worker threads. Results are also cached per coarse region (8x8 chunks) so that
+ * large oceans are skipped with a single map lookup.
+ */
+public class BiomePreFilter {
+
+    // 8x8 chunks, i.e. 128x128 blocks per region.
+    private static final int REGION_SHIFT = 3;
+    private static final int REGION_SIZE_BLOCKS = 16 << REGION_SHIFT;
+
+    private final World world;
+    private final BiomeProvider biomeProvider;
+    private final int sampleY;
+
+    // Region key -> true if every sampled point of the region is an unsafe (ocean) biome.
+    private final ConcurrentHashMap<Long, Boolean> unsafeRegions = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejectedByRegion = new AtomicLong();
+    private final AtomicLong rejectedByChunk = new AtomicLong();
+
+    public BiomePreFilter(World world) {
+        this.world = world;
+        // A custom generator may supply its own provider; otherwise use the vanilla noise biome source.
+        BiomeProvider custom = world.getBiomeProvider();
+        this.biomeProvider = custom != null ? custom : world.vanillaBiomeProvider();
+        this.sampleY = world.getSeaLevel();
+    }
+
+    /**
+     * @return false if the chunk is known to be unsafe from biome data alone, true if it is worth loading.
+     */
+    public boolean shouldScan(int chunkX, int chunkZ) {
+        int regionX = chunkX >> REGION_SHIFT;
+        int regionZ = chunkZ >> REGION_SHIFT;
+        long regionKey = ((long) regionX << 32) | (regionZ & 0xFFFFFFFFL);
+        if (unsafeRegions.computeIfAbsent(regionKey, key -> isUnsafeRegion(regionX, regionZ))) {
+            rejectedByRegion.incrementAndGet();
+            return false;
+        }
+        if (isUnsafeAt((chunkX << 4) + 8, (chunkZ << 4) + 8)) {
+            rejectedByChunk.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public long getRejectedByRegion() {
+        return rejectedByRegion.get();
+    }
+
+    public long getRejectedByChunk() {
+        return rejectedByChunk.get();
+    }
+
+    private boolean isUnsafeRegion(int regionX, int regionZ) {
+        int minX = regionX * REGION_SIZE_BLOCKS;
+        int minZ = regionZ * REGION_SIZE_BLOCKS;
+        int inset = REGION_SIZE_BLOCKS / 8;
+        int far = REGION_SIZE_BLOCKS - inset;
+        int mid = REGION_SIZE_BLOCKS / 2;
+        // Centre plus four points near the corners: a region is only written off if all of them are ocean.
+        return isUnsafeAt(minX + mid, minZ + mid)
+                && isUnsafeAt(minX + inset, minZ + inset)
+                && isUnsafeAt(minX + far, minZ + inset)
+                && isUnsafeAt(minX + inset, minZ + far)
+                && isUnsafeAt(minX + far, minZ + far);
+    }
+
+    private boolean isUnsafeAt(int blockX, int blockZ) {
+        Biome biome = biomeProvider.getBiome(world, blockX, sampleY, blockZ);
+        return SafeLocationChecker.isUnsafeBiome(biome);
+    }
+}
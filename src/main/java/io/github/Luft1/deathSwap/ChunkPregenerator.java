@@ -0,0 +1,276 @@
+package io.github.Luft1.deathSwap;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Generates the chunks of an arena ahead of play, walking an outward square spiral around the origin.
+ * <p>
+ * Every chunk goes through {@link SafeLocationFinder#pregenerateChunk}, so the run both fills the
+ * location index and records the chunks without a safe spawn, and the finder does not have to generate
+ * terrain during a round. At most {@code maxInFlight} chunk requests are outstanding at a time, the run
+ * pauses while a round is in progress, and the position is saved to disk so it resumes after a restart.
+ * <p>
+ * All state is confined to the global region thread.
+ */
+public class ChunkPregenerator {
+
+    // Upper bound on spiral steps per tick, so a stretch of already sampled chunks cannot stall a tick.
+    private static final int MAX_STEPS_PER_TICK = 256;
+    private static final long SAVE_INTERVAL_TICKS = 20L * 30;
+    private static final long REPORT_INTERVAL_TICKS = 20L * 60;
+
+    private final JavaPlugin plugin;
+    private final Scheduling scheduling;
+    private final String name;
+    private final SafeLocationFinder finder;
+    private final BooleanSupplier paused;
+    private final int maxInFlight;
+    private final File file;
+
+    private ScheduledTask task;
+    private int radius;
+    private long total;
+    // Spiral index of the next chunk to request.
+    private long next;
+    // Spiral indices requested but not finished yet; the smallest one is where a restart resumes.
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    // Bumped on every start and stop, so completions from an earlier run are ignored.
+    private int session;
+    private boolean wasPaused;
+    private long ticks;
+    private long scanned;
+    private long skipped;
+    private long failed;
+
+    /**
+     * @param paused      checked every tick; no new chunks are requested while it returns true.
+     * @param maxInFlight the number of chunk requests allowed to be outstanding at once.
+     */
+    public ChunkPregenerator(JavaPlugin plugin, Scheduling scheduling, String name, World world,
+                             SafeLocationFinder finder, BooleanSupplier paused, int maxInFlight) {
+        this.plugin = plugin;
+        this.scheduling = scheduling;
+        this.name = name;
+        this.finder = finder;
+        this.paused = paused;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.file = new File(new File(plugin.getDataFolder(), "locations"), world.getUID() + ".pregen");
+    }
+
+    /**
+     * Continues a run that was still active when the server stopped.
+     */
+    public void resume() {
+        if (!file.isFile()) {
+            return;
+        }
+        Properties progress = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            progress.load(reader);
+            if (!Boolean.parseBoolean(progress.getProperty("active"))) {
+                return;
+            }
+            int savedRadius = Integer.parseInt(progress.getProperty("radius"));
+            long savedNext = Long.parseLong(progress.getProperty("next"));
+            scheduling.runGlobal(() -> {
+                begin(savedRadius, savedNext);
+                plugin.getLogger().info("[" + name + "] Resuming chunk pre-generation at " + savedNext + "/" + total + ".");
+            });
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().warning("[" + name + "] Could not read pre-generation progress " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts a new run covering a square of {@code radiusBlocks} around the origin, clamped to the
+     * area the finder searches. Restarting over a finished area is cheap: chunks the sample map already
+     * knows are skipped without being loaded.
+     */
+    public void start(int radiusBlocks) {
+        stop(false);
+        begin(Math.min(Math.max(0, radiusBlocks) >> 4, SafeLocationFinder.MAX_CHUNK_DISTANCE - 1), 0);
+        save();
+        plugin.getLogger().info("[" + name + "] Pre-generating " + total + " chunks within " + (radius << 4) + " blocks.");
+    }
+
+    /**
+     * Stops the current run. With {@code keepProgress} the run is left marked active, so it resumes on
+     * the next start; otherwise it is cancelled for good.
+     */
+    public void stop(boolean keepProgress) {
+        if (task == null) {
+            return;
+        }
+        task.cancel();
+        task = null;
+        long resumeAt = resumeIndex();
+        session++;
+        inFlight.clear();
+        next = resumeAt;
+        if (keepProgress) {
+            save();
+        } else {
+            writeProgress(false);
+            plugin.getLogger().info("[" + name + "] Chunk pre-generation stopped at " + next + "/" + total + ".");
+        }
+    }
+
+    public void shutdown() {
+        stop(true);
+    }
+
+    public boolean isRunning() {
+        return task != null;
+    }
+
+    public boolean isPaused() {
+        return task != null && wasPaused;
+    }
+
+    public String getStatus() {
+        if (task == null) {
+            return "not running";
+        }
+        long done = resumeIndex();
+        return String.format(Locale.ROOT, "%s %d/%d chunks (%.1f%%) within %d blocks, %d scanned, %d already known, %d failed, %d in flight",
+                wasPaused ? "paused at" : "at", done, total, total == 0 ? 100.0 : done * 100.0 / total,
+                radius << 4, scanned, skipped, failed, inFlight.size());
+    }
+
+    private void begin(int radiusChunks, long startIndex) {
+        radius = radiusChunks;
+        total = (2L * radius + 1) * (2L * radius + 1);
+        next = Math.min(startIndex, total);
+        session++;
+        inFlight.clear();
+        scanned = 0;
+        skipped = 0;
+        failed = 0;
+        ticks = 0;
+        wasPaused = false;
+        task = scheduling.runGlobalTimer(this::tick, 1L, 1L);
+    }
+
+    private void tick() {
+        ticks++;
+        if (ticks % SAVE_INTERVAL_TICKS == 0) {
+            save();
+        }
+        if (ticks % REPORT_INTERVAL_TICKS == 0 && !wasPaused) {
+            plugin.getLogger().info("[" + name + "] Pre-generation " + getStatus() + ".");
+        }
+
+        boolean pause = paused.getAsBoolean();
+        if (pause != wasPaused) {
+            wasPaused = pause;
+            plugin.getLogger().info("[" + name + "] Chunk pre-generation " + (pause ? "paused for the round." : "resumed."));
+        }
+        if (pause) {
+            return;
+        }
+
+        int steps = 0;
+        while (next < total && inFlight.size() < maxInFlight && steps++ < MAX_STEPS_PER_TICK) {
+            long step = next++;
+            int ring = ring(step);
+            int chunkX = spiralX(step, ring);
+            int chunkZ = spiralZ(step, ring);
+            int requestSession = session;
+            inFlight.add(step);
+            finder.pregenerateChunk(chunkX, chunkZ).whenCompleteAsync((didScan, error) -> {
+                if (requestSession != session) {
+                    return;
+                }
+                inFlight.remove(step);
+                if (error != null) {
+                    failed++;
+                } else if (didScan) {
+                    scanned++;
+                } else {
+                    skipped++;
+                }
+            }, scheduling.global());
+        }
+
+        if (next >= total && inFlight.isEmpty()) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        task.cancel();
+        task = null;
+        session++;
+        writeProgress(false);
+        plugin.getLogger().info("[" + name + "] Chunk pre-generation finished: " + total + " chunks within "
+                + (radius << 4) + " blocks, " + scanned + " scanned, " + skipped + " already known, " + failed + " failed.");
+    }
+
+    private long resumeIndex() {
+        return inFlight.isEmpty() ? next : inFlight.first();
+    }
+
+    private void save() {
+        writeProgress(true);
+    }
+
+    private void writeProgress(boolean active) {
+        String progress = "active=" + active + "\nradius=" + radius + "\nnext=" + resumeIndex() + "\n";
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.writeString(tmp.toPath(), progress, StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("[" + name + "] Could not save pre-generation progress: " + e.getMessage());
+        }
+    }
+
+    // Step 0 is the origin; ring k (k >= 1) holds steps (2k-1)^2 .. (2k+1)^2 - 1, walked as four sides of 2k chunks.
+    private static int ring(long step) {
+        int k = (int) Math.ceil((Math.sqrt(step + 1) - 1) / 2);
+        // Correct for floating point error at the ring boundaries.
+        while (k > 0 && (2L * k - 1) * (2L * k - 1) > step) k--;
+        while ((2L * k + 1) * (2L * k + 1) <= step) k++;
+        return k;
+    }
+
+    private static int spiralX(long step, int k) {
+        if (k == 0) return 0;
+        int offset = (int) (step - (2L * k - 1) * (2L * k - 1));
+        int side = offset / (2 * k);
+        int pos = offset % (2 * k);
+        return switch (side) {
+            case 0 -> k;
+            case 1 -> k - 1 - pos;
+            case 2 -> -k;
+            default -> -k + 1 + pos;
+        };
+    }
+
+    private static int spiralZ(long step, int k) {
+        if (k == 0) return 0;
+        int offset = (int) (step - (2L * k - 1) * (2L * k - 1));
+        int side = offset / (2 * k);
+        int pos = offset % (2 * k);
+        return switch (side) {
+            case 0 -> -k + 1 + pos;
+            case 1 -> k;
+            case 2 -> k - 1 - pos;
+            default -> -k;
+        };
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Pins the chunks around every contestant with plugin chunk tickets shortly before a swap.
+ * <p>
+ * Every contestant's position is somebody's destination, so once these chunks are loaded the swap
+ * only has to teleport. The pinned area follows players as they move until {@link #stop()} is called
+ * after the teleports complete. Chunks shared by nearby players, or also pinned for cached spawns,
+ * are reference counted by the arena's {@link ChunkTicketManager}; players outside the arena's world
+ * are not followed. All methods must be called on the global region thread; each player's position is read on the thread
+ * that owns them.
+ */
+public class ChunkPrewarmer {
+
+    private static final long REFRESH_INTERVAL = 10L;
+
+    private final RoundClock clock;
+    private final Scheduling scheduling;
+    private final ChunkTicketManager tickets;
+    private final int radius;
+
+    // Player -> their pinned area.
+    private final Map<UUID, PinnedArea> areas = new HashMap<>();
+    private Supplier<? extends Collection<Player>> contestants;
+    private RoundClock.Handle refreshTask;
+    // Bumped by stop(), so a refresh still waiting for player positions is discarded.
+    private int session;
+    private boolean refreshing;
+
+    public ChunkPrewarmer(RoundClock clock, Scheduling scheduling, ChunkTicketManager tickets, int radius) {
+        this.clock = clock;
+        this.scheduling = scheduling;
+        this.tickets = tickets;
+        this.radius = Math.max(0, radius);
+    }
+
+    /**
+     * Starts pinning chunks around the given contestants, and keeps following them until stopped.
+     */
+    public void start(Supplier<? extends Collection<Player>> contestants) {
+        if (isActive()) return;
+        this.contestants = contestants;
+        refresh();
+        refreshTask = clock.scheduleRepeating(REFRESH_INTERVAL, REFRESH_INTERVAL, this::refresh);
+    }
+
+    /**
+     * Releases every ticket held by the pre-warmer.
+     */
+    public void stop() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+        areas.values().forEach(this::unpinArea);
+        areas.clear();
+        contestants = null;
+        session++;
+        refreshing = false;
+    }
+
+    public boolean isActive() {
+        return contestants != null;
+    }
+
+    private void refresh() {
+        if (refreshing) return; // The previous refresh is still waiting for positions.
+        List<Player> players = new ArrayList<>();
+        List<CompletableFuture<PinnedChunk>> positions = new ArrayList<>();
+        for (Player player : contestants.get()) {
+            if (!player.isOnline()) continue;
+            players.add(player);
+            positions.add(scheduling.callForEntity(player, () -> {
+                Location loc = player.getLocation();
+                return loc.getWorld().equals(tickets.getWorld()) ? new PinnedChunk(loc.getBlockX() >> 4, loc.getBlockZ() >> 4) : null;
+            }));
+        }
+
+        int refreshSession = session;
+        refreshing = true;
+        CompletableFuture.allOf(positions.toArray(new CompletableFuture[0])).whenCompleteAsync((ignored, throwable) -> {
+            if (refreshSession != session) return;
+            refreshing = false;
+            apply(players, positions);
+        }, scheduling.global());
+    }
+
+    private void apply(List<Player> players, List<CompletableFuture<PinnedChunk>> positions) {
+        Set<UUID> seen = new HashSet<>();
+        for (int i = 0; i < players.size(); i++) {
+            PinnedChunk centre = positions.get(i).exceptionally(t -> null).getNow(null);
+            if (centre == null) continue; // Left before their position could be read, or not in the arena's world.
+            UUID id = players.get(i).getUniqueId();
+            seen.add(id);
+            PinnedArea previous = areas.get(id);
+            if (previous != null && centre.equals(previous.centre)) continue;
+
+            // Pin the new area before unpinning the old one so overlapping chunks never drop out.
+            areas.put(id, pinArea(centre));
+            if (previous != null) {
+                unpinArea(previous);
+            }
+        }
+
+        // Contestants that were eliminated or left no longer need their area.
+        areas.entrySet().removeIf(entry -> {
+            if (seen.contains(entry.getKey())) return false;
+            unpinArea(entry.getValue());
+            return true;
+        });
+    }
+
+    private PinnedArea pinArea(PinnedChunk centre) {
+        List<PinnedChunk> pinned = new ArrayList<>((2 * radius + 1) * (2 * radius + 1));
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                // Never evicts cached spawns: chunks refused at the ticket cap are simply loaded by the teleport instead.
+                if (tickets.tryAcquire(centre.x + dx, centre.z + dz)) {
+                    pinned.add(new PinnedChunk(centre.x + dx, centre.z + dz));
+                }
+            }
+        }
+        return new PinnedArea(centre, pinned);
+    }
+
+    private void unpinArea(PinnedArea area) {
+        for (PinnedChunk chunk : area.pinned) {
+            tickets.release(chunk.x, chunk.z);
+        }
+    }
+
+    private record PinnedChunk(int x, int z) {
+    }
+
+    private record PinnedArea(PinnedChunk centre, List<PinnedChunk> pinned) {
+    }
+}
@@ -0,0 +1,291 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bitmap over every chunk within the search radius, remembering where the finder has already looked.
+ * <p>
+ * Each chunk has two bits: "rejected" (pre-filter or scan found nothing safe) and "claimed" (a search
+ * is running on it, or it produced a spawn). Sampling only hands out chunks with neither bit set, so
+ * a chunk is never generated and checked twice. Both bitmaps are lock-free and persisted to
+ * {@code <data folder>/locations/<world uuid>.samples}; after loading, only claims backed by a location in
+ * the {@link SafeLocationIndex} are kept.
+ */
+public class ChunkSampleMap {
+
+    private static final int MAGIC = 0x4453534D; // "DSSM"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 36;
+    // Cheap random probes before falling back to a word-by-word scan for a free chunk.
+    private static final int RANDOM_PROBES = 8;
+
+    private final JavaPlugin plugin;
+    private final World world;
+    private final File file;
+    private final int radius;
+    private final int size;
+    private final int cellCount;
+    private final int wordCount;
+    private final long lastWordMask;
+
+    private final AtomicLongArray rejected;
+    private final AtomicLongArray claimed;
+
+    /**
+     * @param radiusChunks sampled chunk coordinates lie in {@code [-radiusChunks, radiusChunks)} on both axes.
+     */
+    public ChunkSampleMap(JavaPlugin plugin, World world, int radiusChunks) {
+        this.plugin = plugin;
+        this.world = world;
+        this.file = new File(new File(plugin.getDataFolder(), "locations"), world.getUID() + ".samples");
+        this.radius = radiusChunks;
+        this.size = radiusChunks * 2;
+        this.cellCount = size * size;
+        this.wordCount = (cellCount + 63) >>> 6;
+        this.lastWordMask = (cellCount & 63) == 0 ? -1L : (1L << (cellCount & 63)) - 1;
+        this.rejected = new AtomicLongArray(wordCount);
+        this.claimed = new AtomicLongArray(wordCount);
+    }
+
+    /**
+     * Picks a random chunk that was neither rejected nor claimed, and claims it.
+     * @return the cell index, or -1 if every chunk in the radius is used up.
+     */
+    public int claimRandomCell() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < RANDOM_PROBES; i++) {
+            int cell = random.nextInt(cellCount);
+            if (!isSet(rejected, cell) && setBit(claimed, cell)) {
+                return cell;
+            }
+        }
+
+        // Mostly used up around the probes: walk the words from a random start and take the first free bit.
+        int start = random.nextInt(cellCount);
+        int word = start >>> 6;
+        for (int scanned = 0; scanned <= wordCount; scanned++) {
+            long free = ~(rejected.get(word) | claimed.get(word));
+            if (word == wordCount - 1) {
+                free &= lastWordMask;
+            }
+            if (scanned == 0) {
+                free &= -1L << (start & 63);
+            }
+            while (free != 0) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(free);
+                if (setBit(claimed, cell)) {
+                    return cell;
+                }
+                free &= free - 1;
+            }
+            word = word + 1 == wordCount ? 0 : word + 1;
+        }
+        return -1;
+    }
+
+    public int chunkX(int cell) {
+        return cell % size - radius;
+    }
+
+    public int chunkZ(int cell) {
+        return cell / size - radius;
+    }
+
+    /**
+     * Claims a specific chunk, e.g. one the pre-generator found a spawn in.
+     * @return false if the chunk is rejected, already claimed or outside the map.
+     */
+    public boolean claim(int chunkX, int chunkZ) {
+        int cell = cellOf(chunkX, chunkZ);
+        return cell >= 0 && !isSet(rejected, cell) && setBit(claimed, cell);
+    }
+
+    /**
+     * @return true if the chunk has already been looked at (rejected or claimed), or lies outside the map.
+     */
+    public boolean isSampled(int chunkX, int chunkZ) {
+        int cell = cellOf(chunkX, chunkZ);
+        return cell < 0 || isSet(rejected, cell) || isSet(claimed, cell);
+    }
+
+    /**
+     * Marks a chunk as not worth sampling again and drops its claim.
+     */
+    public void markRejected(int chunkX, int chunkZ) {
+        int cell = cellOf(chunkX, chunkZ);
+        if (cell < 0) return;
+        setBit(rejected, cell);
+        clearBit(claimed, cell);
+    }
+
+    /**
+     * Makes a claimed chunk available for sampling again, e.g. after its spawn failed revalidation.
+     */
+    public void release(int chunkX, int chunkZ) {
+        int cell = cellOf(chunkX, chunkZ);
+        if (cell >= 0) {
+            clearBit(claimed, cell);
+        }
+    }
+
+    /**
+     * Drops every claim that none of {@code locations} lies in, e.g. after loading. The saved bitmap also
+     * holds claims of searches that were still running and of spawns that were handed out; neither left a
+     * location behind, so those chunks become available to the search again.
+     * @return the number of claims dropped.
+     */
+    public long retainClaims(Collection<Location> locations) {
+        long[] kept = new long[wordCount];
+        for (Location loc : locations) {
+            int cell = cellOf(loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+            if (cell >= 0) {
+                kept[cell >>> 6] |= 1L << cell;
+            }
+        }
+        long dropped = 0;
+        for (int i = 0; i < wordCount; i++) {
+            long prev = claimed.getAndAccumulate(i, kept[i], (bits, mask) -> bits & mask);
+            dropped += Long.bitCount(prev & ~kept[i]);
+        }
+        return dropped;
+    }
+
+    public long getRejectedCount() {
+        return countBits(rejected);
+    }
+
+    public long getClaimedCount() {
+        return countBits(claimed);
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Loads the persisted bitmaps. A file for another world, seed or radius is ignored.
+     */
+    public synchronized void load() {
+        if (!file.isFile()) return;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long expectedSize = HEADER_SIZE + (long) wordCount * 16;
+            if (channel.size() != expectedSize) {
+                plugin.getLogger().info("Ignoring sample map " + file.getName() + ": size does not match the search radius.");
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) expectedSize);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+            UUID uid = world.getUID();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != uid.getMostSignificantBits()
+                    || buffer.getLong() != uid.getLeastSignificantBits()
+                    || buffer.getLong() != world.getSeed()
+                    || buffer.getInt() != radius) {
+                plugin.getLogger().info("Ignoring sample map " + file.getName() + ": it belongs to another world, seed or radius.");
+                return;
+            }
+            for (int i = 0; i < wordCount; i++) {
+                rejected.set(i, buffer.getLong());
+            }
+            for (int i = 0; i < wordCount; i++) {
+                claimed.set(i, buffer.getLong());
+            }
+            plugin.getLogger().info("Loaded sample map: " + getRejectedCount() + " rejected and "
+                    + getClaimedCount() + " claimed chunks out of " + cellCount + ".");
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not read sample map " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes both bitmaps to a temporary file and atomically replaces the previous one.
+     */
+    public synchronized void save() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + wordCount * 16);
+        UUID uid = world.getUID();
+        buffer.putInt(MAGIC).putInt(VERSION)
+                .putLong(uid.getMostSignificantBits()).putLong(uid.getLeastSignificantBits())
+                .putLong(world.getSeed()).putInt(radius);
+        for (int i = 0; i < wordCount; i++) {
+            buffer.putLong(rejected.get(i));
+        }
+        for (int i = 0; i < wordCount; i++) {
+            buffer.putLong(claimed.get(i));
+        }
+        buffer.flip();
+
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (FileChannel channel = FileChannel.open(tmp.toPath(),
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not save sample map " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private int cellOf(int chunkX, int chunkZ) {
+        int x = chunkX + radius;
+        int z = chunkZ + radius;
+        if (x < 0 || z < 0 || x >= size || z >= size) return -1;
+        return z * size + x;
+    }
+
+    private static boolean isSet(AtomicLongArray bits, int cell) {
+        return (bits.get(cell >>> 6) & (1L << cell)) != 0;
+    }
+
+    /**
+     * @return true if this call changed the bit from 0 to 1.
+     */
+    private static boolean setBit(AtomicLongArray bits, int cell) {
+        int word = cell >>> 6;
+        long mask = 1L << cell;
+        long prev;
+        do {
+            prev = bits.get(word);
+            if ((prev & mask) != 0) return false;
+        } while (!bits.compareAndSet(word, prev, prev | mask));
+        return true;
+    }
+
+    private static void clearBit(AtomicLongArray bits, int cell) {
+        int word = cell >>> 6;
+        long mask = 1L << cell;
+        long prev;
+        do {
+            prev = bits.get(word);
+            if ((prev & mask) == 0) return;
+        } while (!bits.compareAndSet(word, prev, prev & ~mask));
+    }
+
+    private long countBits(AtomicLongArray bits) {
+        long count = 0;
+        for (int i = 0; i < wordCount; i++) {
+            count += Long.bitCount(bits.get(i));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,149 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Owns every plugin chunk ticket in one arena's world.
+ * <p>
+ * Bukkit plugin tickets are not counted: adding one twice and removing it once unpins the chunk. The
+ * finder, the pre-warmer and round preparation can all want the same chunk, so each of them acquires
+ * and releases through this manager, which counts holders per chunk and only touches the real ticket
+ * on the first acquire and the last release.
+ * <p>
+ * At most {@code maxPinnedChunks} chunks are pinned. When a new chunk would exceed that, the eviction
+ * handler (the finder, whose cached spawns are the cheapest to give up) is asked to drop its least useful
+ * spawns until there is room; if it has nothing left, the acquire is refused. Holds that are only an
+ * optimisation, like pre-warmed areas, use {@link #tryAcquire} and never evict anything.
+ * <p>
+ * All methods must be called on the global region thread.
+ */
+public class ChunkTicketManager {
+
+    private final Plugin plugin;
+    private final String name;
+    private final World world;
+    private final SwapMetrics metrics;
+    private final int maxPinnedChunks;
+    private final LongIntMap holders = new LongIntMap(64);
+    private BooleanSupplier evictor = () -> false;
+    private long evictions;
+    private long refusals;
+
+    /**
+     * @param name used in log messages, e.g. the arena name.
+     */
+    public ChunkTicketManager(Plugin plugin, String name, World world, SwapMetrics metrics, int maxPinnedChunks) {
+        this.plugin = plugin;
+        this.name = name;
+        this.world = world;
+        this.metrics = metrics;
+        this.maxPinnedChunks = Math.max(1, maxPinnedChunks);
+    }
+
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Sets what is asked to give up a pin when the cap is reached. It should release at least one
+     * evictable hold and return true, or return false if it holds nothing it can give up.
+     */
+    public void setEvictor(BooleanSupplier evictor) {
+        this.evictor = evictor;
+    }
+
+    /**
+     * Adds a hold on the chunk, pinning it if this is the first one.
+     * @return false if the chunk was not pinned because the cap is reached; the caller holds nothing then.
+     */
+    public boolean acquire(int chunkX, int chunkZ) {
+        return acquire(chunkX, chunkZ, true);
+    }
+
+    /**
+     * Like {@link #acquire}, but refuses instead of evicting when the cap is reached.
+     */
+    public boolean tryAcquire(int chunkX, int chunkZ) {
+        return acquire(chunkX, chunkZ, false);
+    }
+
+    private boolean acquire(int chunkX, int chunkZ, boolean evict) {
+        long key = chunkKey(chunkX, chunkZ);
+        if (holders.get(key) == 0) {
+            while (holders.size() >= maxPinnedChunks) {
+                if (!evict) {
+                    refusals++;
+                    return false;
+                }
+                if (!evictor.getAsBoolean()) {
+                    refusals++;
+                    return false;
+                }
+                evictions++;
+            }
+        }
+        if (holders.increment(key) == 1) {
+            world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+            metrics.ticketAdded();
+        }
+        return true;
+    }
+
+    /**
+     * Drops a hold on the chunk, unpinning it once nobody holds it.
+     */
+    public void release(int chunkX, int chunkZ) {
+        int remaining = holders.decrement(chunkKey(chunkX, chunkZ));
+        if (remaining == 0) {
+            world.removePluginChunkTicket(chunkX, chunkZ, plugin);
+            metrics.ticketsRemoved(1);
+        } else if (remaining < 0) {
+            plugin.getLogger().warning("[" + name + "] Released chunk " + chunkX + ", " + chunkZ + " which was not pinned.");
+        }
+    }
+
+    public int getPinnedChunkCount() {
+        return holders.size();
+    }
+
+    public int getMaxPinnedChunks() {
+        return maxPinnedChunks;
+    }
+
+    public String getReport() {
+        return holders.size() + "/" + maxPinnedChunks + " chunks pinned, " + evictions + " cached spawns evicted, "
+                + refusals + " pins refused at the cap";
+    }
+
+    /**
+     * Called after every user has released its holds. Anything still pinned was leaked: it is
+     * reported and unpinned so the chunks do not stay loaded.
+     */
+    public void shutdown() {
+        if (holders.isEmpty()) {
+            return;
+        }
+        List<String> leaked = new ArrayList<>();
+        holders.forEachKey(key -> {
+            int chunkX = (int) (key >> 32);
+            int chunkZ = (int) key;
+            if (leaked.size() < 10) {
+                leaked.add(chunkX + "," + chunkZ + " (" + holders.get(key) + " holds)");
+            }
+            world.removePluginChunkTicket(chunkX, chunkZ, plugin);
+        });
+        plugin.getLogger().warning("[" + name + "] " + holders.size() + " chunk tickets were still held on shutdown and have been removed: "
+                + String.join(" ", leaked) + (holders.size() > leaked.size() ? " ..." : ""));
+        metrics.ticketsRemoved(holders.size());
+        holders.clear();
+    }
+}
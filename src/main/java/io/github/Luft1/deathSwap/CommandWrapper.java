@@ -14,7 +14,8 @@ public class CommandWrapper extends Command {
     public CommandWrapper(@NotNull String name, @NotNull DeathSwapCommand executor) {
         super(name);
         this.executor = executor;
-        this.setPermission("deathswap.admin"); // Set permission programmatically
+        // Either permission lets the command through; onCommand checks which subcommands the sender may use.
+        this.setPermission(DeathSwapCommand.JOIN_PERMISSION + ";" + DeathSwapCommand.ADMIN_PERMISSION);
         this.setAliases(List.of("ds")); // Set aliases programmatically
     }
 
@@ -1,35 +1,59 @@
 package io.github.Luft1.deathSwap;
 
 import org.bukkit.command.CommandMap;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionDefault;
 import org.bukkit.plugin.java.JavaPlugin;
 
 public final class DeathSwap extends JavaPlugin {
 
-    private SafeLocationFinder safeLocationFinder;
+    private Scheduling scheduling;
+    private SwapMetrics metrics;
+    private ArenaManager arenaManager;
 
     @Override
     public void onEnable() {
         getLogger().info("death swap plugin starting");
+        saveDefaultConfig();
+        scheduling = new Scheduling(this);
+        metrics = new SwapMetrics(this);
+        metrics.startSnapshots(scheduling, getConfig().getInt("metrics.snapshot-interval-seconds", 60));
+        if (Scheduling.isFolia()) {
+            getLogger().info("Folia detected, rounds will run on region threads.");
+        }
 
-        // Create, store, and initialize the location finder service.
-        safeLocationFinder = new SafeLocationFinder(this);
-        safeLocationFinder.initialize();
-
-        // Pass the single instance to the SwapManager.
-        SwapManager swapManager = new SwapManager(this, safeLocationFinder);
+        // Create every arena, each with its own location finder and SwapManager.
+        arenaManager = new ArenaManager(this);
+        arenaManager.load();
 
-        DeathSwapCommand deathSwapCommand = new DeathSwapCommand(swapManager);
+        // Every player may join an arena; the other subcommands need deathswap.admin.
+        if (getServer().getPluginManager().getPermission(DeathSwapCommand.JOIN_PERMISSION) == null) {
+            getServer().getPluginManager().addPermission(new Permission(DeathSwapCommand.JOIN_PERMISSION,
+                    "Allows /deathswap join", PermissionDefault.TRUE));
+        }
+        DeathSwapCommand deathSwapCommand = new DeathSwapCommand(arenaManager, scheduling, metrics);
         CommandMap commandMap = getServer().getCommandMap();
         commandMap.register("deathswap", new CommandWrapper("deathswap", deathSwapCommand));
-        getServer().getPluginManager().registerEvents(swapManager, this);
+        getServer().getPluginManager().registerEvents(arenaManager, this);
         getLogger().info("Events registered!");
     }
 
     @Override
     public void onDisable() {
         getLogger().info("death swap plugin terminating");
-        if (safeLocationFinder != null) {
-            safeLocationFinder.shutdown();
+        if (arenaManager != null) {
+            arenaManager.shutdown();
+        }
+        if (metrics != null) {
+            metrics.shutdown();
         }
     }
+
+    public Scheduling getScheduling() {
+        return scheduling;
+    }
+
+    public SwapMetrics getMetrics() {
+        return metrics;
+    }
 }
@@ -1,60 +1,201 @@
 package io.github.Luft1.deathSwap;
 
+import org.bukkit.Location;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class DeathSwapCommand implements CommandExecutor, TabCompleter {
 
-    // Store the SwapManager instance
-    private final SwapManager swapManager;
+    private static final String USAGE = "Usage: /deathswap join <arena> | /deathswap <start|end|stats> [arena]"
+            + " | /deathswap pregen [radius|stop|status] [arena] (radius defaults to " + SafeLocationFinder.MAX_DISTANCE + ")";
 
-    // Constructor to receive the SwapManager instance
-    public DeathSwapCommand(SwapManager swapManager) {
-        this.swapManager = swapManager;
+    static final String JOIN_PERMISSION = "deathswap.join";
+    static final String ADMIN_PERMISSION = "deathswap.admin";
+
+    // Store the ArenaManager instance
+    private final ArenaManager arenaManager;
+    private final Scheduling scheduling;
+    private final SwapMetrics metrics;
+
+    // Constructor to receive the ArenaManager instance
+    public DeathSwapCommand(ArenaManager arenaManager, Scheduling scheduling, SwapMetrics metrics) {
+        this.arenaManager = arenaManager;
+        this.scheduling = scheduling;
+        this.metrics = metrics;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-        if (!sender.hasPermission("deathswap.admin")) {
+        // Open to every player by default: it only moves them into another arena's world.
+        if (args.length > 0 && args[0].equalsIgnoreCase("join")) {
+            if (!sender.hasPermission(JOIN_PERMISSION)) {
+                sender.sendMessage("You don't have permission to use this command!");
+                return true;
+            }
+            scheduling.runGlobal(() -> join(sender, args));
+            return true;
+        }
+        if (!sender.hasPermission(ADMIN_PERMISSION)) {
             sender.sendMessage("You don't have permission to use this command!");
             return true;
         }
 
         if (args.length == 0) {
-            sender.sendMessage("Usage: /deathswap <start|end>");
+            sender.sendMessage(USAGE);
             return false;
         }
 
-        switch (args[0].toLowerCase()) {
+        // Player commands run on the player's region thread on Folia; rounds are managed on the global region thread.
+        scheduling.runGlobal(() -> execute(sender, args));
+        return true;
+    }
+
+    private void execute(CommandSender sender, String[] args) {
+        String subcommand = args[0].toLowerCase();
+        // pregen takes its own argument before the arena name.
+        int arenaIndex = subcommand.equals("pregen") ? 2 : 1;
+        Arena arena = resolveArena(sender, args, arenaIndex);
+        if (arena == null) {
+            sender.sendMessage("Unknown arena: " + args[arenaIndex]);
+            return;
+        }
+
+        switch (subcommand) {
             case "start":
-                // Use the instance variable
-                swapManager.startRound();
+                if (arena.getSwapManager().isRoundInProgress()) {
+                    sender.sendMessage("A round is already running in arena " + arena.getName() + ".");
+                } else if (!arena.getSwapManager().startRound(arenaManager.playersFor(arena))) {
+                    sender.sendMessage("Not enough players to start a round in arena " + arena.getName() + ".");
+                }
                 break;
             case "end":
-                // Use the instance variable
-                swapManager.endRound();
+                arena.getSwapManager().endRound();
+                break;
+            case "stats":
+                metrics.describe().forEach(sender::sendMessage);
+                sender.sendMessage("Arena " + arena.getName() + ": " + arena.getFinder().getSearchReport());
+                sender.sendMessage("Arena " + arena.getName() + " tickets: " + arena.getTickets().getReport());
+                sender.sendMessage("Arena " + arena.getName() + " joins: " + arena.getSwapManager().getJoinReport());
+                break;
+            case "pregen":
+                // Without an argument the whole search area is pre-generated; status has to be asked for.
+                pregen(sender, arena, args.length >= 2 ? args[1].toLowerCase() : String.valueOf(SafeLocationFinder.MAX_DISTANCE));
                 break;
             default:
-                sender.sendMessage("Unknown subcommand. Usage: /deathswap <start|end>");
+                sender.sendMessage("Unknown subcommand. " + USAGE);
                 break;
         }
-        return true;
+    }
+
+    /**
+     * Moves the player to the spawn of the arena's world; changing world hands them to that arena.
+     */
+    private void join(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage("Only players can join an arena.");
+            return;
+        }
+        if (args.length < 2) {
+            sender.sendMessage(USAGE);
+            return;
+        }
+        Arena arena = arenaManager.getArena(args[1]);
+        if (arena == null) {
+            sender.sendMessage("Unknown arena: " + args[1]);
+            return;
+        }
+        SwapManager current = arenaManager.arenaOf(player).getSwapManager();
+        if (current.isRoundInProgress() && current.isContestant(player.getUniqueId())) {
+            sender.sendMessage("You can't leave a round you are playing in.");
+            return;
+        }
+        Location spawn = arena.getWorld().getSpawnLocation();
+        scheduling.runForEntity(player, () -> {
+            if (player.getWorld().equals(arena.getWorld())) {
+                player.sendMessage("You are already in arena " + arena.getName() + ".");
+                return;
+            }
+            player.teleportAsync(spawn).thenAccept(success -> player.sendMessage(success
+                    ? "Joined arena " + arena.getName() + "."
+                    : "Could not move you to arena " + arena.getName() + "."));
+        });
+    }
+
+    private void pregen(CommandSender sender, Arena arena, String argument) {
+        ChunkPregenerator pregenerator = arena.getPregenerator();
+        switch (argument) {
+            case "status":
+                sender.sendMessage("Pre-generation in arena " + arena.getName() + ": " + pregenerator.getStatus() + ".");
+                break;
+            case "stop":
+                if (pregenerator.isRunning()) {
+                    pregenerator.stop(false);
+                    sender.sendMessage("Stopped pre-generation in arena " + arena.getName() + ".");
+                } else {
+                    sender.sendMessage("Pre-generation is not running in arena " + arena.getName() + ".");
+                }
+                break;
+            default:
+                int radius;
+                try {
+                    radius = Integer.parseInt(argument);
+                } catch (NumberFormatException e) {
+                    sender.sendMessage("Radius must be a number of blocks. " + USAGE);
+                    return;
+                }
+                pregenerator.start(radius);
+                sender.sendMessage("Pre-generating arena " + arena.getName() + ": " + pregenerator.getStatus() + ".");
+                break;
+        }
+    }
+
+    // An explicit arena name wins; otherwise players act on their own arena and the console on the default one.
+    private Arena resolveArena(CommandSender sender, String[] args, int index) {
+        if (args.length > index) {
+            return arenaManager.getArena(args[index]);
+        }
+        if (sender instanceof Player player) {
+            return arenaManager.arenaOf(player);
+        }
+        return arenaManager.getDefaultArena();
     }
 
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
             List<String> subcommands = new ArrayList<>();
-            subcommands.add("start");
-            subcommands.add("end");
+            if (sender.hasPermission(JOIN_PERMISSION)) {
+                subcommands.add("join");
+            }
+            if (sender.hasPermission(ADMIN_PERMISSION)) {
+                subcommands.add("start");
+                subcommands.add("end");
+                subcommands.add("stats");
+                subcommands.add("pregen");
+            }
             return subcommands;
         }
+        boolean pregen = args[0].equalsIgnoreCase("pregen");
+        if (pregen && args.length == 2) {
+            return new ArrayList<>(Arrays.asList("status", "stop", String.valueOf(SafeLocationFinder.MAX_DISTANCE)));
+        }
+        if (args.length == (pregen ? 3 : 2)) {
+            String prefix = args[args.length - 1].toLowerCase();
+            List<String> names = new ArrayList<>();
+            for (Arena arena : arenaManager.getArenas()) {
+                if (arena.getName().startsWith(prefix)) {
+                    names.add(arena.getName());
+                }
+            }
+            return names;
+        }
         return new ArrayList<>();
     }
 }
-
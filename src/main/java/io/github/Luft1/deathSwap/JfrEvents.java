@@ -0,0 +1,113 @@
+package io.github.Luft1.deathSwap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the plugin's round and location-search phases, so a recording
+ * lines them up against the server's tick, GC and chunk events.
+ * <p>
+ * While no recording is running, {@code begin()} and {@code commit()} are no-ops after JIT, so the
+ * events are created unconditionally. Phases that complete asynchronously are committed from the
+ * thread that finishes them; their duration still spans the whole phase. Enable them with a custom
+ * JFC or {@code jfr configure +io.github.luft1.deathswap.*#enabled=true}; they are on by default.
+ */
+final class JfrEvents {
+
+    private JfrEvents() {
+    }
+
+    @Name("io.github.luft1.deathswap.RoundStart")
+    @Label("Round Start")
+    @Category({"DeathSwap", "Round"})
+    @Description("From /deathswap start until every contestant has been sent to their spawn")
+    @StackTrace(false)
+    static final class RoundStart extends Event {
+        @Label("Arena")
+        String arena;
+        @Label("World")
+        String world;
+        @Label("Players")
+        int players;
+        @Label("Spawns Ready Immediately")
+        boolean spawnsReady;
+    }
+
+    @Name("io.github.luft1.deathswap.Swap")
+    @Label("Swap")
+    @Category({"DeathSwap", "Round"})
+    @Description("From the swap trigger until the last teleport completed")
+    @StackTrace(false)
+    static final class Swap extends Event {
+        @Label("Arena")
+        String arena;
+        @Label("World")
+        String world;
+        @Label("Players")
+        int players;
+        @Label("Topology")
+        String topology;
+        @Label("Capture Nanos")
+        @Description("Time spent reading every contestant's position")
+        long captureNanos;
+        @Label("Topology Nanos")
+        @Description("Time spent deciding who goes where")
+        long topologyNanos;
+        @Label("Destinations Loaded")
+        int destinationsLoaded;
+        @Label("Batch Size")
+        int batchSize;
+    }
+
+    @Name("io.github.luft1.deathswap.AddContestant")
+    @Label("Add Contestant")
+    @Category({"DeathSwap", "Round"})
+    @Description("Placement of one contestant at round start, from the start of the teleports until they arrived")
+    @StackTrace(false)
+    static final class AddContestant extends Event {
+        @Label("Arena")
+        String arena;
+        @Label("World")
+        String world;
+        @Label("Player")
+        String player;
+        @Label("Chunk Load Nanos")
+        @Description("Time their spawn chunk took to load, before the teleports started")
+        long chunkLoadNanos;
+    }
+
+    @Name("io.github.luft1.deathswap.LocationSearch")
+    @Label("Location Search")
+    @Category({"DeathSwap", "Location Search"})
+    @Description("One background search for a safe spawn location")
+    @StackTrace(false)
+    static final class LocationSearch extends Event {
+        @Label("Arena")
+        String arena;
+        @Label("World")
+        String world;
+        @Label("Stored Locations Checked")
+        int storedChecked;
+        @Label("Chunks Scanned")
+        int chunksScanned;
+        @Label("Chunks Generated")
+        int chunksGenerated;
+        @Label("Found")
+        boolean found;
+    }
+
+    @Name("io.github.luft1.deathswap.HudRender")
+    @Label("HUD Render")
+    @Category({"DeathSwap", "Round"})
+    @StackTrace(false)
+    static final class HudRender extends Event {
+        @Label("Arena")
+        String arena;
+        @Label("Elapsed Seconds")
+        long elapsedSeconds;
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.entity.Player;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Admits joining players in batches instead of one scheduled task each.
+ * <p>
+ * Players wait {@code delayTicks} after joining (so they have finished logging in) and are then admitted
+ * in join order, at most {@code maxPerTick} per tick, by one repeating clock event that only runs while
+ * somebody is waiting. A player who reconnects while still queued keeps a single entry, pointing at their
+ * new {@link Player} and moved to the back; a player who leaves is dropped from the queue. When a proxy
+ * moves a whole lobby over at once, the queue depth shows how far behind admission is.
+ * <p>
+ * All methods must be called on the global region thread.
+ */
+public class JoinQueue {
+
+    private final RoundClock clock;
+    private final long delayTicks;
+    private final int maxPerTick;
+    private final Consumer<Player> admit;
+
+    // In join order, so ready ticks never decrease along the map.
+    private final Map<UUID, Waiting> waiting = new LinkedHashMap<>();
+    private RoundClock.Handle drainTask;
+    private int peakDepth;
+    private long admitted;
+    private long requeued;
+
+    /**
+     * @param admit called for each player that is still online when their turn comes.
+     */
+    public JoinQueue(RoundClock clock, long delayTicks, int maxPerTick, Consumer<Player> admit) {
+        this.clock = clock;
+        this.delayTicks = Math.max(1, delayTicks);
+        this.maxPerTick = Math.max(1, maxPerTick);
+        this.admit = admit;
+    }
+
+    public void offer(Player player) {
+        if (waiting.remove(player.getUniqueId()) != null) {
+            requeued++;
+        }
+        waiting.put(player.getUniqueId(), new Waiting(player, clock.getCurrentTick() + delayTicks));
+        peakDepth = Math.max(peakDepth, waiting.size());
+        if (drainTask == null) {
+            // Detached from the round: a player joining just as a round ends must still be admitted.
+            drainTask = clock.scheduleRepeatingDetached(1L, 1L, this::drain);
+        }
+    }
+
+    public void remove(UUID id) {
+        waiting.remove(id);
+    }
+
+    public int getDepth() {
+        return waiting.size();
+    }
+
+    public String getReport() {
+        return waiting.size() + " waiting (peak " + peakDepth + "), " + admitted + " admitted, "
+                + requeued + " reconnected while queued, at most " + maxPerTick + " per tick";
+    }
+
+    public void stop() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        waiting.clear();
+    }
+
+    private void drain() {
+        long now = clock.getCurrentTick();
+        int batch = 0;
+        Iterator<Waiting> it = waiting.values().iterator();
+        while (batch < maxPerTick && it.hasNext()) {
+            Waiting next = it.next();
+            if (next.readyTick() > now) break;
+            it.remove();
+            if (next.player().isOnline()) {
+                admit.accept(next.player());
+                admitted++;
+                batch++;
+            }
+        }
+        if (waiting.isEmpty()) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+    }
+
+    private record Waiting(Player player, long readyTick) {
+    }
+}
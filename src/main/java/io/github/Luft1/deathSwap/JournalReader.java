@@ -0,0 +1,227 @@
+package io.github.Luft1.deathSwap;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Offline reader for {@link RoundJournal} files. Needs nothing but the plugin jar:
+ * <pre>java -cp DeathSwap.jar io.github.Luft1.deathSwap.JournalReader plugins/DeathSwap/journal/default-*.dsj</pre>
+ * For every round it prints the duration and tick rate, the slowest swap, teleport latencies, how often
+ * each player was sent away and had their location taken, and every elimination with its cause and the
+ * player whose location it happened at.
+ * <p>
+ * File layout: an int magic and version, creation wall-clock millis and nanoTime, the arena name (short
+ * length + UTF-8), the damage cause names (short count, then byte length + ASCII each), followed by 64-byte
+ * records of eight longs: {@code type << 32 | round}, tick, nanoTime, two UUIDs (or a UUID and a packed
+ * name), and a type-specific value.
+ */
+public final class JournalReader {
+
+    private JournalReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: JournalReader <journal.dsj>...");
+            System.exit(1);
+        }
+        for (String arg : args) {
+            read(Path.of(arg), System.out);
+        }
+    }
+
+    public static void read(Path path, PrintStream out) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.getInt() != RoundJournal.MAGIC) {
+            throw new IOException(path + " is not a round journal");
+        }
+        int version = data.getInt();
+        if (version != RoundJournal.VERSION) {
+            throw new IOException(path + " has unsupported journal version " + version);
+        }
+        long startMillis = data.getLong();
+        data.getLong(); // nanoTime at creation, only needed to date individual records
+        String arena = readString(data, data.getShort());
+        String[] causes = new String[data.getShort()];
+        for (int i = 0; i < causes.length; i++) {
+            causes[i] = readString(data, data.get());
+        }
+
+        out.println("Journal " + path.getFileName() + " for arena " + arena + ", started " + Instant.ofEpochMilli(startMillis));
+        Map<Integer, Round> rounds = new LinkedHashMap<>();
+        Map<UUID, String> names = new HashMap<>();
+        long records = 0;
+        while (data.remaining() >= RoundJournal.RECORD_BYTES) {
+            long header = data.getLong();
+            int type = (int) (header >>> 32);
+            int roundNumber = (int) header;
+            long tick = data.getLong();
+            long nanos = data.getLong();
+            UUID a = uuid(data.getLong(), data.getLong());
+            long b0 = data.getLong();
+            long b1 = data.getLong();
+            long value = data.getLong();
+            records++;
+
+            Round round = rounds.computeIfAbsent(roundNumber, Round::new);
+            round.observe(tick, nanos);
+            switch (type) {
+                case RoundJournal.ROUND_START -> round.players = (int) value;
+                case RoundJournal.ROUND_END -> {
+                    round.winner = a;
+                    round.ended = true;
+                }
+                case RoundJournal.PARTICIPANT -> names.put(a, unpackName(b0, b1));
+                case RoundJournal.SWAP -> round.startSwap(nanos);
+                case RoundJournal.SWAP_EDGE -> {
+                    round.count(round.sentAway, a);
+                    round.count(round.locationTaken, uuid(b0, b1));
+                }
+                case RoundJournal.TELEPORT -> round.teleport(nanos, a.equals(uuid(b0, b1)), value);
+                case RoundJournal.ELIMINATION -> round.eliminations.add(new Elimination(tick, a, uuid(b0, b1),
+                        value >= 0 && value < causes.length ? causes[(int) value] : "UNKNOWN"));
+                default -> {
+                    // Written by a newer plugin version; skip it.
+                }
+            }
+        }
+        out.println(records + " events, " + rounds.size() + " rounds.");
+        for (Round round : rounds.values()) {
+            round.print(out, names);
+        }
+    }
+
+    private static String readString(ByteBuffer data, int length) {
+        byte[] bytes = new byte[length & 0xFFFF];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static UUID uuid(long msb, long lsb) {
+        return msb == 0 && lsb == 0 ? null : new UUID(msb, lsb);
+    }
+
+    private static String unpackName(long first, long second) {
+        StringBuilder name = new StringBuilder(16);
+        for (long part : new long[]{first, second}) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                char c = (char) ((part >>> shift) & 0xFF);
+                if (c == 0) return name.toString();
+                name.append(c);
+            }
+        }
+        return name.toString();
+    }
+
+    private record Elimination(long tick, UUID victim, UUID owner, String cause) {
+    }
+
+    private static final class Round {
+        private final int number;
+        private int players;
+        private boolean ended;
+        private UUID winner;
+        private long firstTick = -1;
+        private long lastTick;
+        private long firstNanos;
+        private long lastNanos;
+        private int swaps;
+        private long swapStartNanos;
+        private long swapEndNanos;
+        private long slowestSwapNanos;
+        private int failedTeleports;
+        private final LatencyHistogram spawnTeleports = new LatencyHistogram();
+        private final LatencyHistogram swapTeleports = new LatencyHistogram();
+        private final Map<UUID, Integer> sentAway = new HashMap<>();
+        private final Map<UUID, Integer> locationTaken = new HashMap<>();
+        private final List<Elimination> eliminations = new ArrayList<>();
+
+        private Round(int number) {
+            this.number = number;
+        }
+
+        private void observe(long tick, long nanos) {
+            if (firstTick < 0) {
+                firstTick = tick;
+                firstNanos = nanos;
+            }
+            lastTick = tick;
+            lastNanos = nanos;
+        }
+
+        private void startSwap(long nanos) {
+            finishSwap();
+            swaps++;
+            swapStartNanos = nanos;
+            swapEndNanos = nanos;
+        }
+
+        private void finishSwap() {
+            if (swaps > 0) {
+                slowestSwapNanos = Math.max(slowestSwapNanos, swapEndNanos - swapStartNanos);
+            }
+        }
+
+        private void teleport(long nanos, boolean spawn, long value) {
+            if (value < 0) {
+                failedTeleports++;
+                return;
+            }
+            (spawn ? spawnTeleports : swapTeleports).recordNanos(value);
+            if (!spawn) {
+                swapEndNanos = Math.max(swapEndNanos, nanos);
+            }
+        }
+
+        private void count(Map<UUID, Integer> counts, UUID id) {
+            if (id != null) {
+                counts.merge(id, 1, Integer::sum);
+            }
+        }
+
+        private void print(PrintStream out, Map<UUID, String> names) {
+            finishSwap();
+            long ticks = lastTick - firstTick;
+            double seconds = (lastNanos - firstNanos) / 1e9;
+            out.println();
+            out.println(String.format(Locale.ROOT, "Round %d: %d players, %d swaps, %d ticks over %.1f s (%.2f ms per tick)%s",
+                    number, players, swaps, ticks, seconds, ticks == 0 ? 0.0 : (lastNanos - firstNanos) / 1e6 / ticks,
+                    ended ? (winner != null ? ", won by " + name(names, winner) : ", no winner") : ", not finished"));
+            out.println(String.format(Locale.ROOT, "  Slowest swap: %.2f ms until the last teleport completed", slowestSwapNanos / 1e6));
+            out.println("  Spawn teleports: " + spawnTeleports.summary());
+            out.println("  Swap teleports: " + swapTeleports.summary() + (failedTeleports > 0 ? ", " + failedTeleports + " failed" : ""));
+            if (!sentAway.isEmpty()) {
+                out.println("  Swaps per player (sent away / location taken):");
+                for (Map.Entry<UUID, Integer> entry : sentAway.entrySet()) {
+                    out.println("    " + name(names, entry.getKey()) + ": " + entry.getValue() + " / "
+                            + locationTaken.getOrDefault(entry.getKey(), 0));
+                }
+            }
+            for (Elimination elimination : eliminations) {
+                out.println("  Tick " + (elimination.tick - firstTick) + ": " + name(names, elimination.victim)
+                        + " died (" + elimination.cause + ")"
+                        + (elimination.owner != null ? " at " + name(names, elimination.owner) + "'s location" : ""));
+            }
+        }
+
+        private static String name(Map<UUID, String> names, UUID id) {
+            return names.getOrDefault(id, id.toString());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.Luft1.deathSwap;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing map from {@code long} keys to positive {@code int} counts, without boxing.
+ * <p>
+ * A count of 0 marks an empty slot, so a key disappears as soon as its count drops to 0. Collisions
+ * are resolved by linear probing, and removals shift the following entries back instead of leaving
+ * tombstones, so lookups never degrade after many add/remove cycles. Not thread-safe.
+ */
+public final class LongIntMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] counts;
+    private int mask;
+    private int size;
+
+    public LongIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the count for {@code key}, or 0 if it is not present.
+     */
+    public int get(long key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * Adds one to the count for {@code key}, inserting it with a count of 1 if absent.
+     * @return the new count.
+     */
+    public int increment(long key) {
+        int slot = indexOf(key);
+        while (counts[slot] != 0) {
+            if (keys[slot] == key) {
+                return ++counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        if (++size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return 1;
+    }
+
+    /**
+     * Subtracts one from the count for {@code key}, removing the key when it reaches 0.
+     * @return the new count, or -1 if the key was not present.
+     */
+    public int decrement(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return -1;
+        }
+        int count = --counts[slot];
+        if (count == 0) {
+            removeSlot(slot);
+        }
+        return count;
+    }
+
+    public void forEachKey(LongConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (counts[i] != 0) {
+                action.accept(keys[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    private int find(long key) {
+        int slot = indexOf(key);
+        while (counts[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Backward-shift deletion: moves later entries of the same probe run into the gap.
+    private void removeSlot(int slot) {
+        size--;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (counts[next] != 0) {
+            int home = indexOf(keys[next]);
+            // The entry may fill the gap if its home slot does not lie cyclically in (gap, next].
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                counts[gap] = counts[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        counts[gap] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] != 0) {
+                int slot = indexOf(oldKeys[i]);
+                while (counts[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        // Chunk keys differ mostly in their low bits of each half; the finalizer of MurmurHash3 spreads them.
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,200 @@
+package io.github.Luft1.deathSwap;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Arrays;
+
+/**
+ * A single repeating task that drives every timed round event from a hashed timing wheel.
+ * <p>
+ * Events are bucketed by {@code deadline & MASK}; each tick only the current bucket is visited, and
+ * events further away than one revolution simply stay in their bucket until their tick comes around.
+ * Scheduling and cancelling one event are O(1). Round-scoped events carry the generation they were
+ * scheduled in, so {@link #cancelRound()} drops all of them at once by bumping the generation; stale
+ * entries are discarded lazily when their bucket is visited. No matter how many events are pending,
+ * the clock only ever holds one scheduler task. It ticks on the global region thread (the main thread on
+ * classic Paper) and must only be used from there.
+ */
+public class RoundClock {
+
+    private static final int WHEEL_SIZE = 256;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private final Plugin plugin;
+    private final Scheduling scheduling;
+    private final Entry[] buckets = new Entry[WHEEL_SIZE];
+    private long tick;
+    private int roundGeneration;
+    private int pending;
+    private ScheduledTask task;
+
+    public RoundClock(Plugin plugin, Scheduling scheduling) {
+        this.plugin = plugin;
+        this.scheduling = scheduling;
+    }
+
+    public void start() {
+        if (task == null) {
+            task = scheduling.runGlobalTimer(this::advance, 1L, 1L);
+        }
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        Arrays.fill(buckets, null);
+        pending = 0;
+    }
+
+    /**
+     * Runs {@code action} once after {@code delayTicks} (at least one tick). The event is cancelled
+     * together with the round by {@link #cancelRound()}.
+     */
+    public Handle schedule(long delayTicks, Runnable action) {
+        return insert(new Entry(action, 0, true), delayTicks);
+    }
+
+    /**
+     * Runs {@code action} every {@code periodTicks}, starting after {@code delayTicks}, until cancelled
+     * or until the round is cancelled.
+     */
+    public Handle scheduleRepeating(long delayTicks, long periodTicks, Runnable action) {
+        return insert(new Entry(action, Math.max(1, periodTicks), true), delayTicks);
+    }
+
+    /**
+     * Like {@link #schedule(long, Runnable)}, but the event survives {@link #cancelRound()}.
+     */
+    public Handle scheduleDetached(long delayTicks, Runnable action) {
+        return insert(new Entry(action, 0, false), delayTicks);
+    }
+
+    /**
+     * Like {@link #scheduleRepeating(long, long, Runnable)}, but the event survives {@link #cancelRound()}
+     * and only stops when its handle is cancelled.
+     */
+    public Handle scheduleRepeatingDetached(long delayTicks, long periodTicks, Runnable action) {
+        return insert(new Entry(action, Math.max(1, periodTicks), false), delayTicks);
+    }
+
+    /**
+     * Cancels every round-scoped event in O(1).
+     */
+    public void cancelRound() {
+        roundGeneration++;
+    }
+
+    public long getCurrentTick() {
+        return tick;
+    }
+
+    /**
+     * @return events still in the wheel, including cancelled ones that have not been swept yet.
+     */
+    public int getPendingCount() {
+        return pending;
+    }
+
+    private Handle insert(Entry entry, long delayTicks) {
+        entry.generation = roundGeneration;
+        entry.deadline = tick + Math.max(1, delayTicks);
+        link(entry);
+        return entry;
+    }
+
+    private void link(Entry entry) {
+        int slot = (int) (entry.deadline & MASK);
+        entry.next = buckets[slot];
+        buckets[slot] = entry;
+        pending++;
+    }
+
+    private void advance() {
+        long now = ++tick;
+        int slot = (int) (now & MASK);
+        Entry entry = buckets[slot];
+        buckets[slot] = null;
+
+        // Split the bucket into events due now and events for a later revolution.
+        Entry due = null;
+        Entry keepTail = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.next = null;
+            if (entry.isDead(roundGeneration)) {
+                pending--;
+            } else if (entry.deadline <= now) {
+                pending--;
+                entry.next = due;
+                due = entry;
+            } else {
+                // Keep the remaining entries in their original (newest-first) order.
+                if (keepTail == null) {
+                    buckets[slot] = entry;
+                } else {
+                    keepTail.next = entry;
+                }
+                keepTail = entry;
+            }
+            entry = next;
+        }
+
+        // The bucket is kept newest-first, so "due" now runs in scheduling order.
+        while (due != null) {
+            Entry next = due.next;
+            due.next = null;
+            // An earlier event in this tick may have cancelled this one.
+            if (!due.isDead(roundGeneration)) {
+                try {
+                    due.action.run();
+                } catch (Throwable t) {
+                    plugin.getLogger().severe("Round clock event failed: " + t);
+                }
+                if (due.period > 0 && !due.isDead(roundGeneration)) {
+                    due.deadline = now + due.period;
+                    link(due);
+                }
+            }
+            due = next;
+        }
+    }
+
+    public interface Handle {
+        void cancel();
+
+        boolean isCancelled();
+    }
+
+    private static final class Entry implements Handle {
+        private final Runnable action;
+        private final long period;
+        private final boolean roundScoped;
+        private long deadline;
+        private int generation;
+        private boolean cancelled;
+        private Entry next;
+
+        private Entry(Runnable action, long period, boolean roundScoped) {
+            this.action = action;
+            this.period = period;
+            this.roundScoped = roundScoped;
+        }
+
+        private boolean isDead(int roundGeneration) {
+            return cancelled || (roundScoped && generation != roundGeneration);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
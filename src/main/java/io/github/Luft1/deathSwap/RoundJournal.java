@@ -0,0 +1,301 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Binary, append-only journal of one arena's rounds: starts and ends, participants, every swap edge,
+ * teleport completions and eliminations, each stamped with the round clock's tick and {@link System#nanoTime()}.
+ * <p>
+ * Recording only writes eight longs into a preallocated ring buffer, so it allocates nothing and never
+ * blocks the tick; when the buffer is full the event is dropped and counted instead. A daemon thread drains
+ * the buffer into a direct {@link ByteBuffer} and writes it to {@code journal/<arena>-<time>.dsj} in the plugin
+ * folder. {@link JournalReader} turns such a file into per-round summaries.
+ * <p>
+ * Any thread may record. The file layout is described on {@link JournalReader}.
+ */
+public final class RoundJournal {
+
+    static final int MAGIC = 0x44534A31; // "DSJ1"
+    static final int VERSION = 1;
+    static final int RECORD_LONGS = 8;
+    static final int RECORD_BYTES = RECORD_LONGS * Long.BYTES;
+
+    static final int ROUND_START = 1;
+    static final int ROUND_END = 2;
+    static final int PARTICIPANT = 3;
+    static final int SWAP = 4;
+    static final int SWAP_EDGE = 5;
+    static final int TELEPORT = 6;
+    static final int ELIMINATION = 7;
+
+    private static final long IDLE_PARK_NANOS = 5_000_000L;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private final Plugin plugin;
+    private final String name;
+    private final boolean enabled;
+    private final int capacity;
+    private final int mask;
+    private final long[] slots;
+    // published[i] holds sequence + 1 of the record in slot i once it is fully written.
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+    private File file;
+
+    /**
+     * @param capacity ring buffer size in records, rounded up to a power of two.
+     */
+    public RoundJournal(Plugin plugin, String name, boolean enabled, int capacity) {
+        this.plugin = plugin;
+        this.name = name;
+        this.enabled = enabled;
+        this.capacity = enabled ? Integer.highestOneBit(Math.max(1024, capacity) - 1) << 1 : 1;
+        this.mask = this.capacity - 1;
+        this.slots = new long[this.capacity * RECORD_LONGS];
+        this.published = new AtomicLongArray(this.capacity);
+    }
+
+    /**
+     * Opens the journal file and starts the writer thread.
+     */
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        file = new File(new File(plugin.getDataFolder(), "journal"), name + "-" + time + ".dsj");
+        FileChannel channel;
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+            writeHeader(channel);
+        } catch (IOException e) {
+            plugin.getLogger().warning("[" + name + "] Could not open round journal " + file.getName() + ": " + e.getMessage());
+            return;
+        }
+        startRecording();
+        writer = new Thread(() -> drainLoop(channel), "DeathSwap-Journal-" + name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Accepts events from now on. {@link #start()} calls this before starting the writer; without one,
+     * as in tests, the buffer is only emptied by {@link #drain}.
+     */
+    void startRecording() {
+        running = true;
+    }
+
+    /**
+     * Stops the writer after it has written everything recorded so far.
+     */
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        long lost = dropped.sum();
+        plugin.getLogger().info("[" + name + "] Round journal written to " + file.getName()
+                + (lost > 0 ? ", " + lost + " events were dropped because the buffer was full." : "."));
+    }
+
+    public void roundStart(long tick, int round, int players) {
+        append(ROUND_START, round, tick, 0, 0, 0, 0, players);
+    }
+
+    /**
+     * @param winner the last contestant standing, or null for a tie or a round that was called off.
+     */
+    public void roundEnd(long tick, int round, UUID winner, int remaining) {
+        append(ROUND_END, round, tick, msb(winner), lsb(winner), 0, 0, remaining);
+    }
+
+    /**
+     * Maps a player to their name for the reader. Names are at most 16 characters and stored in two longs.
+     */
+    public void participant(long tick, int round, UUID player, String playerName) {
+        long first = 0;
+        long second = 0;
+        for (int i = 0; i < Math.min(16, playerName.length()); i++) {
+            long c = playerName.charAt(i) & 0xFF;
+            if (i < 8) {
+                first |= c << (56 - 8 * i);
+            } else {
+                second |= c << (56 - 8 * (i - 8));
+            }
+        }
+        append(PARTICIPANT, round, tick, msb(player), lsb(player), first, second, 0);
+    }
+
+    public void swap(long tick, int round, int players) {
+        append(SWAP, round, tick, 0, 0, 0, 0, players);
+    }
+
+    /**
+     * One edge of a swap's topology: {@code traveller} is sent to where {@code owner} stood.
+     */
+    public void swapEdge(long tick, int round, UUID traveller, UUID owner) {
+        append(SWAP_EDGE, round, tick, msb(traveller), lsb(traveller), msb(owner), lsb(owner), 0);
+    }
+
+    /**
+     * A finished teleport. {@code owner == traveller} for spawn placement at the start of a round.
+     */
+    public void teleport(long tick, int round, UUID traveller, UUID owner, long latencyNanos, boolean success) {
+        append(TELEPORT, round, tick, msb(traveller), lsb(traveller), msb(owner), lsb(owner),
+                success ? latencyNanos : -latencyNanos - 1);
+    }
+
+    /**
+     * @param owner the player whose location the victim was swapped to, or null if unknown.
+     * @param cause ordinal of the last {@link EntityDamageEvent.DamageCause}, or -1; names are in the file header.
+     */
+    public void elimination(long tick, int round, UUID victim, UUID owner, int cause) {
+        append(ELIMINATION, round, tick, msb(victim), lsb(victim), msb(owner), lsb(owner), cause);
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void append(int type, int round, long tick, long a0, long a1, long b0, long b1, long value) {
+        if (!running) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        int base = slot * RECORD_LONGS;
+        slots[base] = ((long) type << 32) | (round & 0xFFFFFFFFL);
+        slots[base + 1] = tick;
+        slots[base + 2] = System.nanoTime();
+        slots[base + 3] = a0;
+        slots[base + 4] = a1;
+        slots[base + 5] = b0;
+        slots[base + 6] = b1;
+        slots[base + 7] = value;
+        // Release: the writer sees every slot field once it sees the sequence.
+        published.setRelease(slot, sequence + 1);
+    }
+
+    private void drainLoop(FileChannel channel) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        try (channel) {
+            while (true) {
+                boolean stopping = !running;
+                int drained = drain(buffer);
+                if (buffer.remaining() < RECORD_BYTES || (drained == 0 && buffer.position() > 0)) {
+                    flush(channel, buffer);
+                }
+                if (drained == 0) {
+                    // Everything recorded before the stop flag was seen has been written.
+                    if (stopping) break;
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            flush(channel, buffer);
+        } catch (IOException e) {
+            running = false;
+            plugin.getLogger().warning("[" + name + "] Round journal stopped, could not write " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copies published records, in order, into {@code buffer} while it has room, freeing their slots.
+     * There is a single consumer: the writer thread, or the caller when the journal was not started.
+     * @return the number of records copied.
+     */
+    int drain(ByteBuffer buffer) {
+        int drained = 0;
+        long sequence = consumed;
+        while (buffer.remaining() >= RECORD_BYTES) {
+            int slot = (int) (sequence & mask);
+            if (published.getAcquire(slot) != sequence + 1) {
+                break;
+            }
+            int base = slot * RECORD_LONGS;
+            for (int i = 0; i < RECORD_LONGS; i++) {
+                buffer.putLong(slots[base + i]);
+            }
+            sequence++;
+            // Only now may producers reuse the slot.
+            consumed = sequence;
+            drained++;
+        }
+        return drained;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Magic, version, wall-clock millis and nanoTime at creation (to turn record nanos into dates), the
+     * arena name and the damage cause names that elimination ordinals refer to.
+     */
+    private void writeHeader(FileChannel channel) throws IOException {
+        EntityDamageEvent.DamageCause[] causes = EntityDamageEvent.DamageCause.values();
+        byte[] arena = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(4096 + arena.length);
+        header.putInt(MAGIC).putInt(VERSION)
+                .putLong(System.currentTimeMillis()).putLong(System.nanoTime());
+        header.putShort((short) arena.length).put(arena);
+        header.putShort((short) causes.length);
+        for (EntityDamageEvent.DamageCause cause : causes) {
+            byte[] causeName = cause.name().getBytes(StandardCharsets.US_ASCII);
+            header.put((byte) causeName.length).put(causeName);
+        }
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    private static long msb(UUID id) {
+        return id == null ? 0 : id.getMostSignificantBits();
+    }
+
+    private static long lsb(UUID id) {
+        return id == null ? 0 : id.getLeastSignificantBits();
+    }
+}
@@ -0,0 +1,237 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.entity.Player;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Who takes part in the current round, keyed by player UUID.
+ * <p>
+ * Membership checks and role changes are O(1). Contestants are also kept in a dense array, so each
+ * one has an index the swap code can use directly; removal moves the last contestant into the freed
+ * slot. {@link Player} references are dropped as soon as a player quits, only their UUID and last
+ * known name are kept for messages. The registry is confined to the global region thread, which is
+ * the main thread on classic Paper.
+ */
+public class RoundRegistry {
+
+    public enum Role {
+        CONTESTANT,
+        SPECTATOR,
+        /** Took part in this round but is currently disconnected. */
+        OFFLINE
+    }
+
+    public static final class Participant {
+        private final UUID id;
+        private String name;
+        private Player player;
+        private Role role;
+        private int index = -1;
+
+        private Participant(UUID id) {
+            this.id = id;
+        }
+
+        public UUID getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the online player, or null while the participant is disconnected.
+         */
+        public Player getPlayer() {
+            return player;
+        }
+
+        public Role getRole() {
+            return role;
+        }
+
+        /**
+         * @return the slot in the contestant array, or -1 if not a contestant.
+         */
+        public int getIndex() {
+            return index;
+        }
+    }
+
+    private final Map<UUID, Participant> participants = new HashMap<>();
+    private Participant[] contestants = new Participant[16];
+    private int contestantCount;
+    private int spectatorCount;
+
+    // Live view of the contestants' Player objects, e.g. for an Audience or the chunk pre-warmer.
+    private final List<Player> contestantPlayers = new AbstractList<>() {
+        @Override
+        public Player get(int i) {
+            if (i >= contestantCount) throw new IndexOutOfBoundsException(i);
+            return contestants[i].player;
+        }
+
+        @Override
+        public int size() {
+            return contestantCount;
+        }
+    };
+
+    public boolean isContestant(UUID id) {
+        Participant participant = participants.get(id);
+        return participant != null && participant.role == Role.CONTESTANT;
+    }
+
+    public boolean isSpectator(UUID id) {
+        Participant participant = participants.get(id);
+        return participant != null && participant.role == Role.SPECTATOR;
+    }
+
+    public Participant get(UUID id) {
+        return participants.get(id);
+    }
+
+    /**
+     * @return the last known name of a participant, even if they have since disconnected.
+     */
+    public String getName(UUID id) {
+        Participant participant = participants.get(id);
+        return participant == null ? null : participant.name;
+    }
+
+    public int getContestantCount() {
+        return contestantCount;
+    }
+
+    public int getSpectatorCount() {
+        return spectatorCount;
+    }
+
+    public Participant getContestant(int index) {
+        if (index >= contestantCount) throw new IndexOutOfBoundsException(index);
+        return contestants[index];
+    }
+
+    public List<Player> getContestantPlayers() {
+        return contestantPlayers;
+    }
+
+    /**
+     * @return a snapshot of every participant that is currently online, whatever their role.
+     */
+    public List<Player> getOnlinePlayers() {
+        List<Player> online = new ArrayList<>(participants.size());
+        for (Participant participant : participants.values()) {
+            if (participant.player != null) {
+                online.add(participant.player);
+            }
+        }
+        return online;
+    }
+
+    public void addContestant(Player player) {
+        Participant participant = track(player);
+        if (participant.role == Role.CONTESTANT) return;
+        leaveRole(participant);
+        if (contestantCount == contestants.length) {
+            contestants = Arrays.copyOf(contestants, contestantCount * 2);
+        }
+        participant.index = contestantCount;
+        contestants[contestantCount++] = participant;
+        participant.role = Role.CONTESTANT;
+    }
+
+    public void addSpectator(Player player) {
+        Participant participant = track(player);
+        if (participant.role == Role.SPECTATOR) return;
+        leaveRole(participant);
+        participant.role = Role.SPECTATOR;
+        spectatorCount++;
+    }
+
+    /**
+     * Removes a contestant without giving them a new role yet.
+     * @return true if the player was a contestant.
+     */
+    public boolean removeContestant(UUID id) {
+        checkThread();
+        Participant participant = participants.get(id);
+        if (participant == null || participant.role != Role.CONTESTANT) return false;
+        leaveRole(participant);
+        return true;
+    }
+
+    /**
+     * Called when a player disconnects: they lose their role and the {@link Player} reference is dropped.
+     */
+    public void markOffline(UUID id) {
+        checkThread();
+        Participant participant = participants.get(id);
+        if (participant == null) return;
+        leaveRole(participant);
+        participant.role = Role.OFFLINE;
+        participant.player = null;
+    }
+
+    /**
+     * Forgets a participant who is not a contestant, e.g. a spectator who moved to another arena.
+     * @return false if the player is a contestant and was kept.
+     */
+    public boolean forget(UUID id) {
+        checkThread();
+        Participant participant = participants.get(id);
+        if (participant == null) return true;
+        if (participant.role == Role.CONTESTANT) return false;
+        leaveRole(participant);
+        participants.remove(id);
+        return true;
+    }
+
+    /**
+     * Forgets every participant, e.g. at the start of a new round.
+     */
+    public void clear() {
+        checkThread();
+        participants.clear();
+        Arrays.fill(contestants, 0, contestantCount, null);
+        contestantCount = 0;
+        spectatorCount = 0;
+    }
+
+    private Participant track(Player player) {
+        checkThread();
+        Participant participant = participants.computeIfAbsent(player.getUniqueId(), Participant::new);
+        participant.player = player;
+        participant.name = player.getName();
+        return participant;
+    }
+
+    private void leaveRole(Participant participant) {
+        if (participant.role == Role.CONTESTANT) {
+            // Swap-remove: the last contestant takes over the freed slot.
+            int index = participant.index;
+            Participant last = contestants[--contestantCount];
+            contestants[index] = last;
+            last.index = index;
+            contestants[contestantCount] = null;
+            participant.index = -1;
+        } else if (participant.role == Role.SPECTATOR) {
+            spectatorCount--;
+        }
+        participant.role = null;
+    }
+
+    private static void checkThread() {
+        if (!Scheduling.isGlobalThread()) {
+            throw new IllegalStateException("RoundRegistry must only be used on the global region thread");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads a chunk asynchronously, captures a {@link ChunkSnapshot} on the thread that owns the chunk
+ * (the main thread on classic Paper, the chunk's region thread on Folia) and then evaluates every
+ * column of that snapshot on a worker thread.
+ * <p>
+ * Nothing here touches live world state off its owning thread, and a single generated chunk
+ * yields up to 256 checked columns instead of one.
+ */
+public class SafeChunkScanner {
+
+    private final SafeLocationChecker checker;
+    private final Executor worker;
+    private final SwapMetrics metrics;
+
+    public SafeChunkScanner(Executor worker, SafeLocationChecker checker, SwapMetrics metrics) {
+        this.checker = checker;
+        this.worker = worker;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Scans the chunk at the given chunk coordinates. The returned future completes on a worker
+     * thread with every safe location found in the chunk (possibly empty).
+     */
+    public CompletableFuture<List<Location>> scan(World world, int chunkX, int chunkZ) {
+        long requested = System.nanoTime();
+        return world.getChunkAtAsync(chunkX, chunkZ)
+                // getChunkAtAsync completes on the thread that owns the chunk, which is where the snapshot must be taken.
+                .thenApply(chunk -> {
+                    metrics.recordChunkLoad(System.nanoTime() - requested);
+                    return chunk.getChunkSnapshot(true, true, false);
+                })
+                .thenApplyAsync(snapshot -> {
+                    metrics.recordColumnsSampled(256);
+                    return checker.getSafeLocationsInChunk(world, snapshot);
+                }, worker);
+    }
+
+    /**
+     * Re-checks a single, previously verified location without generating anything: if the chunk
+     * was never generated the future completes with {@code null}, as it does for an unsafe location.
+     */
+    public CompletableFuture<Location> checkLocation(World world, Location stored) {
+        int blockX = stored.getBlockX();
+        int blockZ = stored.getBlockZ();
+        return world.getChunkAtAsync(blockX >> 4, blockZ >> 4, false)
+                .thenApply(chunk -> chunk == null ? null : chunk.getChunkSnapshot(true, true, false))
+                .thenApplyAsync(snapshot -> {
+                    if (snapshot == null) return null;
+                    metrics.recordColumnsSampled(1);
+                    return checker.recheck(world, snapshot, blockX & 15, stored.getBlockY(), blockZ & 15);
+                }, worker);
+    }
+}
@@ -1,15 +1,16 @@
 package io.github.Luft1.deathSwap;
 
-import org.bukkit.HeightMap;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.Tag;
 import org.bukkit.World;
 import org.bukkit.block.Biome;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class SafeLocationChecker {
@@ -18,45 +19,276 @@ public class SafeLocationChecker {
             Material.LAVA, Material.MAGMA_BLOCK, Material.FIRE,
             Material.CAMPFIRE, Material.CACTUS, Material.NETHER_PORTAL, Material.AIR
     );
+    // Non-solid blocks that still must not be where a player's feet or head end up.
+    private static final EnumSet<Material> UNSAFE_HEADROOM = EnumSet.of(
+            Material.LAVA, Material.FIRE, Material.SOUL_FIRE, Material.NETHER_PORTAL, Material.END_PORTAL,
+            Material.END_GATEWAY, Material.POWDER_SNOW
+    );
+
+    // Section kinds for the cave scan.
+    private static final byte SECTION_MIXED = 0;
+    private static final byte SECTION_EMPTY = 1;
+    private static final byte SECTION_SOLID = 2;
+    // Offsets sampled along each axis to decide whether a section is solid throughout.
+    private static final int[] SOLID_SAMPLES = {0, 5, 10, 15};
+
+    /**
+     * How a world's columns are searched. The overworld only uses the surface: the highest block of each
+     * column. Worlds with a ceiling or without a continuous surface (the Nether and the End) are searched
+     * for every floor in the column instead, so cave floors, ledges and islands count too.
+     */
+    enum Scan {
+        SURFACE, CAVES;
+
+        static Scan forWorld(World world) {
+            return world.getEnvironment() == World.Environment.NORMAL ? SURFACE : CAVES;
+        }
+    }
+
+    /**
+     * How blocks and biomes are classified. The server's registries back the default; benchmarks
+     * supply their own so the checker runs without a server.
+     */
+    interface Terrain {
+        /** Blocks the column scan steps down through: air and leaves. */
+        boolean isSkippable(Material material);
+
+        boolean isSolid(Material material);
 
-    // --- SOLUTION ---
-    // Replaced EnumSet<Biome> with a standard HashSet<Biome>
-    private static final Set<Biome> UNSAFE_BIOMES = new HashSet<>();
+        boolean isUnsafeBiome(Biome biome);
+    }
+
+    private final Terrain terrain;
+
+    public SafeLocationChecker() {
+        this(ServerTerrain.INSTANCE);
+    }
 
-    // Statically initialize the set since we can't use .of() anymore
-    static {
-        UNSAFE_BIOMES.add(Biome.OCEAN);
-        UNSAFE_BIOMES.add(Biome.DEEP_OCEAN);
-        UNSAFE_BIOMES.add(Biome.COLD_OCEAN);
-        UNSAFE_BIOMES.add(Biome.DEEP_COLD_OCEAN);
-        UNSAFE_BIOMES.add(Biome.LUKEWARM_OCEAN);
-        UNSAFE_BIOMES.add(Biome.DEEP_LUKEWARM_OCEAN);
-        UNSAFE_BIOMES.add(Biome.FROZEN_OCEAN);
-        UNSAFE_BIOMES.add(Biome.DEEP_FROZEN_OCEAN);
+    SafeLocationChecker(Terrain terrain) {
+        this.terrain = terrain;
     }
 
-    public Location getSafeLocationInColumn(World world, int x, int z) {
-        Block groundBlock = world.getHighestBlockAt(x, z, HeightMap.MOTION_BLOCKING_NO_LEAVES);
+    /**
+     * Evaluates all 256 columns of a chunk snapshot and returns every safe standing spot.
+     * Only snapshot data is read, so this is safe to call from any thread.
+     */
+    public List<Location> getSafeLocationsInChunk(World world, ChunkSnapshot snapshot) {
+        if (Scan.forWorld(world) == Scan.CAVES) {
+            return getCaveLocationsInChunk(world, snapshot, world.getMinHeight(), getScanTop(world));
+        }
+        List<Location> safeLocations = new ArrayList<>();
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                Location loc = getSafeLocationInColumn(world, snapshot, x, z);
+                if (loc != null) {
+                    safeLocations.add(loc);
+                }
+            }
+        }
+        return safeLocations;
+    }
 
-        // This check now uses the HashSet, but the logic remains the same.
-        if (UNSAFE_BIOMES.contains(groundBlock.getBiome())) {
+    /**
+     * Checks a single column of a snapshot. {@code x} and {@code z} are relative to the chunk (0-15).
+     */
+    public Location getSafeLocationInColumn(World world, ChunkSnapshot snapshot, int x, int z) {
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight();
+
+        // The snapshot heightmap is MOTION_BLOCKING, so step down through air and leaves
+        // to land on the same block the old MOTION_BLOCKING_NO_LEAVES lookup returned.
+        int y = Math.min(snapshot.getHighestBlockYAt(x, z), maxY - 1);
+        Material ground = snapshot.getBlockType(x, y, z);
+        while (y > minY && terrain.isSkippable(ground)) {
+            y--;
+            ground = snapshot.getBlockType(x, y, z);
+        }
+
+        if (terrain.isUnsafeBiome(snapshot.getBiome(x, y, z))) {
             return null;
         }
 
-        if (isGroundSafe(groundBlock)) {
-            Location playerFeetLocation = groundBlock.getLocation().add(0.5, 1.0, 0.5);
-            Block feetBlock = playerFeetLocation.getBlock();
-            Block headBlock = feetBlock.getRelative(BlockFace.UP);
+        if (isGroundSafe(ground)
+                && isPassable(snapshot, x, y + 1, z, maxY)
+                && isPassable(snapshot, x, y + 2, z, maxY)) {
+            int blockX = (snapshot.getX() << 4) + x;
+            int blockZ = (snapshot.getZ() << 4) + z;
+            return new Location(world, blockX + 0.5, y + 1.0, blockZ + 0.5);
+        }
+        return null;
+    }
+
+    /**
+     * Re-checks a previously found location in a fresh snapshot. On the surface the column is searched
+     * again, since the ground may have changed height; in caves the stored floor itself is checked, as the
+     * column may hold several floors. {@code x} and {@code z} are relative to the chunk (0-15).
+     */
+    public Location recheck(World world, ChunkSnapshot snapshot, int x, int y, int z) {
+        if (Scan.forWorld(world) == Scan.SURFACE) {
+            return getSafeLocationInColumn(world, snapshot, x, z);
+        }
+        int top = getScanTop(world);
+        if (y - 1 < world.getMinHeight() || y >= top) {
+            return null;
+        }
+        boolean openAbove = top >= world.getMaxHeight();
+        if (!isFloor(snapshot.getBlockType(x, y - 1, z))
+                || !isHeadroom(snapshot.getBlockType(x, y, z))
+                || (y + 1 < top ? !isHeadroom(snapshot.getBlockType(x, y + 1, z)) : !openAbove)
+                || terrain.isUnsafeBiome(snapshot.getBiome(x, y - 1, z))) {
+            return null;
+        }
+        return toLocation(world, snapshot, x, y - 1, z);
+    }
+
+    /**
+     * Finds every floor in every column between {@code minY} and {@code topY} (exclusive): a solid, safe
+     * block with two free blocks above it. Sections are classified once per chunk, so a column only
+     * visits blocks in sections that mix air and solid blocks:
+     * <ul>
+     *     <li>empty sections (all air, straight from the snapshot) only add headroom,</li>
+     *     <li>solid sections (every sampled block solid) only have their top layer looked at,</li>
+     *     <li>mixed sections are walked block by block.</li>
+     * </ul>
+     * A section that is only mostly solid can be mistaken for a solid one, which loses the floors inside
+     * it, but never accepts an unsafe spot: every accepted floor and its headroom have been read.
+     */
+    List<Location> getCaveLocationsInChunk(World world, ChunkSnapshot snapshot, int minY, int topY) {
+        int sections = (topY - minY + 15) >> 4;
+        byte[] kinds = new byte[sections];
+        for (int s = 0; s < sections; s++) {
+            kinds[s] = classifySection(snapshot, s, minY, topY);
+        }
 
-            if (feetBlock.isPassable() && headBlock.isPassable()) {
-                return playerFeetLocation;
+        // Above the build limit is open sky; under a ceiling (the Nether's logical height) it is not.
+        int initialRun = topY >= world.getMaxHeight() ? 2 : 0;
+        List<Location> safeLocations = new ArrayList<>();
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                int run = initialRun;
+                for (int s = sections - 1; s >= 0; s--) {
+                    int bottom = minY + (s << 4);
+                    int top = Math.min(bottom + 15, topY - 1);
+                    if (kinds[s] == SECTION_EMPTY) {
+                        run += top - bottom + 1;
+                        continue;
+                    }
+                    int stopAt = kinds[s] == SECTION_SOLID ? top : bottom;
+                    for (int y = top; y >= stopAt; y--) {
+                        Material material = snapshot.getBlockType(x, y, z);
+                        if (isHeadroom(material)) {
+                            run++;
+                            continue;
+                        }
+                        if (run >= 2 && isFloor(material) && !terrain.isUnsafeBiome(snapshot.getBiome(x, y, z))) {
+                            safeLocations.add(toLocation(world, snapshot, x, y, z));
+                        }
+                        run = 0;
+                    }
+                    if (kinds[s] == SECTION_SOLID) {
+                        run = 0;
+                    }
+                }
             }
         }
-        return null;
+        return safeLocations;
+    }
+
+    /**
+     * The highest y (exclusive) worth searching: the logical height, so nobody is placed on top of the
+     * Nether's bedrock roof.
+     */
+    private static int getScanTop(World world) {
+        return Math.min(world.getMaxHeight(), world.getMinHeight() + world.getLogicalHeight());
+    }
+
+    // Section indices count up from the world's minimum height, as in ChunkSnapshot#isSectionEmpty.
+    private byte classifySection(ChunkSnapshot snapshot, int section, int minY, int topY) {
+        if (snapshot.isSectionEmpty(section)) {
+            return SECTION_EMPTY;
+        }
+        int bottom = minY + (section << 4);
+        for (int dy : SOLID_SAMPLES) {
+            int y = bottom + dy;
+            if (y >= topY) {
+                return SECTION_MIXED;
+            }
+            for (int dx : SOLID_SAMPLES) {
+                for (int dz : SOLID_SAMPLES) {
+                    if (!terrain.isSolid(snapshot.getBlockType(dx, y, dz))) {
+                        return SECTION_MIXED;
+                    }
+                }
+            }
+        }
+        return SECTION_SOLID;
+    }
+
+    private boolean isFloor(Material material) {
+        return terrain.isSolid(material) && !UNSAFE_GROUND.contains(material);
+    }
+
+    private boolean isHeadroom(Material material) {
+        return !terrain.isSolid(material) && !UNSAFE_HEADROOM.contains(material);
+    }
+
+    private static Location toLocation(World world, ChunkSnapshot snapshot, int x, int floorY, int z) {
+        int blockX = (snapshot.getX() << 4) + x;
+        int blockZ = (snapshot.getZ() << 4) + z;
+        return new Location(world, blockX + 0.5, floorY + 1.0, blockZ + 0.5);
     }
 
-    private boolean isGroundSafe(Block block) {
-        return !UNSAFE_GROUND.contains(block.getType());
+    static boolean isUnsafeBiome(Biome biome) {
+        return ServerTerrain.INSTANCE.isUnsafeBiome(biome);
     }
 
-}
\ No newline at end of file
+    private boolean isGroundSafe(Material material) {
+        return !UNSAFE_GROUND.contains(material);
+    }
+
+    private boolean isPassable(ChunkSnapshot snapshot, int x, int y, int z, int maxY) {
+        // Anything above the build limit is open air.
+        return y >= maxY || !terrain.isSolid(snapshot.getBlockType(x, y, z));
+    }
+
+    /**
+     * Classification through the server's registries. Kept in its own class so the biome and tag
+     * constants are only resolved once a server is running.
+     */
+    private static final class ServerTerrain implements Terrain {
+
+        private static final ServerTerrain INSTANCE = new ServerTerrain();
+
+        // --- SOLUTION ---
+        // Replaced EnumSet<Biome> with a standard HashSet<Biome>
+        private final Set<Biome> unsafeBiomes = new HashSet<>();
+
+        private ServerTerrain() {
+            unsafeBiomes.add(Biome.OCEAN);
+            unsafeBiomes.add(Biome.DEEP_OCEAN);
+            unsafeBiomes.add(Biome.COLD_OCEAN);
+            unsafeBiomes.add(Biome.DEEP_COLD_OCEAN);
+            unsafeBiomes.add(Biome.LUKEWARM_OCEAN);
+            unsafeBiomes.add(Biome.DEEP_LUKEWARM_OCEAN);
+            unsafeBiomes.add(Biome.FROZEN_OCEAN);
+            unsafeBiomes.add(Biome.DEEP_FROZEN_OCEAN);
+            // Mostly void; the few islands there are too small to be worth a chunk load.
+            unsafeBiomes.add(Biome.SMALL_END_ISLANDS);
+        }
+
+        @Override
+        public boolean isSkippable(Material material) {
+            return material.isAir() || Tag.LEAVES.isTagged(material);
+        }
+
+        @Override
+        public boolean isSolid(Material material) {
+            return material.isSolid();
+        }
+
+        @Override
+        public boolean isUnsafeBiome(Biome biome) {
+            return unsafeBiomes.contains(biome);
+        }
+    }
+}
@@ -1,124 +1,603 @@
 package io.github.Luft1.deathSwap;
 
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitTask;
 
-import java.util.Random;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
 
-public class SafeLocationFinder {
+public class SafeLocationFinder implements SpawnSource {
 
     private final JavaPlugin plugin;
-    private final SafeLocationChecker checker;
-    private static final Random random = new Random();
+    private final Scheduling scheduling;
+    private final SwapMetrics metrics;
+    private final String name;
+    private final World world;
+    // How many players the pool has to serve, e.g. everybody in the arena's world.
+    private final IntSupplier expectedPlayers;
+    private final int maxConcurrentSearches;
+    private final SafeChunkScanner scanner;
+    // Finder state (cache, reservations, index) is owned by the global region thread.
+    private final Executor global;
+    private final Executor worker;
+    private BiomePreFilter preFilter;
+    private ChunkSampleMap sampleMap;
 
-    private final ConcurrentLinkedQueue<Location> safeLocationCache = new ConcurrentLinkedQueue<>();
-    private BukkitTask populatingTask;
+    private final int minSeparation;
+    // Ready spawns, pairwise at least minSeparation apart. Only touched on the global region thread.
+    private final SpawnGrid safeLocationCache;
+    // Cached spawns too close to the previous round's spawns; they become ready again with the next reservation.
+    private final SpawnGrid heldBackLocations;
+    // Spawns handed out by the last and the current reservation, which new spawns have to keep clear of.
+    private SpawnGrid previousRoundSpawns;
+    private SpawnGrid currentRoundSpawns;
+    // Pins the chunks of cached spawns; spawns sharing a chunk share a single ticket.
+    private final ChunkTicketManager tickets;
+    // Locations loaded from the on-disk index that still have to be re-checked against the world.
+    // Only touched on the global region thread.
+    private final Queue<Location> unverifiedLocations = new ArrayDeque<>();
+    // Stored locations that were still safe but too close to a cached or current-round spawn. They go back
+    // into the revalidation queue with the next reservation, once those spawns have been handed out.
+    private final Queue<Location> deferredLocations = new ArrayDeque<>();
+    private SafeLocationIndex index;
+    // Reservations waiting for locations, served in FIFO order. Only touched on the global region thread.
+    private final Queue<Reservation> pendingReservations = new ArrayDeque<>();
+    private ScheduledTask populatingTask;
+    private ScheduledTask sampleMapSaveTask;
     private boolean cacheReadyMessageSent = false;
+    private boolean indexFullMessageSent = false;
+    // Set from worker threads by pickCandidateChunk.
+    private volatile boolean sampleMapExhaustedMessageSent = false;
 
-    // --- SOLUTION ---
-    // This flag prevents multiple find operations from running at the same time.
-    private volatile boolean isFindingLocation = false;
+    // Number of chunk searches currently running. Bounded by maxConcurrentSearches.
+    private final AtomicInteger activeSearches = new AtomicInteger();
+
+    // Search efficiency counters, reported via getSearchReport().
+    private final AtomicLong acceptedLocations = new AtomicLong();
+    private final AtomicLong chunksGenerated = new AtomicLong();
+    private final AtomicLong wastedGenerations = new AtomicLong();
+    private final AtomicLong tooCloseCandidates = new AtomicLong();
 
     // --- CONFIGURATION ---
-    private static final int TARGET_CACHE_SIZE = 10;
-    private static final int MAX_DISTANCE = 8000;
+    // The cache is sized to the expected player count plus some headroom, but never below MIN_CACHE_SIZE.
+    private static final int MIN_CACHE_SIZE = 10;
+    private static final int CACHE_HEADROOM = 5;
+    static final int MAX_DISTANCE = 8000;
+    static final int MAX_CHUNK_DISTANCE = MAX_DISTANCE >> 4;
+    // Pre-generated spawns queued for revalidation beyond this are only kept in the on-disk index.
+    private static final int MAX_UNVERIFIED = 4096;
+    // Each attempt scans a whole chunk (256 columns), so far fewer attempts are needed than columns were.
+    // Further safe columns of a searched chunk kept for later rounds, spread across the chunk.
+    private static final int EXTRA_COLUMNS_PER_CHUNK = 8;
+    private static final int CHUNKS_PER_SEARCH = 32;
+    // Random samples the biome pre-filter may reject before a search attempt is given up.
+    private static final int PREFILTER_SAMPLES = 64;
+    private static final int REPORT_INTERVAL = 10;
+    private static final long SAMPLE_MAP_SAVE_INTERVAL = 20L * 60 * 5;
 
-    public SafeLocationFinder(JavaPlugin plugin) {
+    /**
+     * @param name                  used in log messages, e.g. the arena name.
+     * @param tickets               the arena's ticket manager, for the chunks of cached spawns.
+     * @param worker                shared worker threads for column checks and biome sampling.
+     * @param maxConcurrentSearches this finder's budget of chunk searches in flight.
+     */
+    public SafeLocationFinder(JavaPlugin plugin, Scheduling scheduling, SwapMetrics metrics, String name, World world,
+                              ChunkTicketManager tickets, Executor worker, int maxConcurrentSearches, IntSupplier expectedPlayers) {
         this.plugin = plugin;
-        this.checker = new SafeLocationChecker();
+        this.scheduling = scheduling;
+        this.metrics = metrics;
+        this.name = name;
+        this.world = world;
+        this.tickets = tickets;
+        this.expectedPlayers = expectedPlayers;
+        this.maxConcurrentSearches = Math.max(1, maxConcurrentSearches);
+        this.worker = worker;
+        this.scanner = new SafeChunkScanner(worker, new SafeLocationChecker(), metrics);
+        this.global = scheduling.global();
+        this.minSeparation = Math.max(0, plugin.getConfig().getInt("swap.min-spawn-separation", 128));
+        this.safeLocationCache = new SpawnGrid(minSeparation);
+        this.heldBackLocations = new SpawnGrid(minSeparation);
+        this.previousRoundSpawns = new SpawnGrid(minSeparation);
+        this.currentRoundSpawns = new SpawnGrid(minSeparation);
+        tickets.setEvictor(this::evictLeastUseful);
     }
 
     public void initialize() {
-        plugin.getLogger().info("Initializing SafeLocationFinder cache. Target size: " + TARGET_CACHE_SIZE);
-        populatingTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::populateCache, 0L, 100L);
+        plugin.getLogger().info("[" + name + "] Initializing SafeLocationFinder cache for world " + world.getName()
+                + ". Target size: " + getTargetCacheSize());
+        preFilter = new BiomePreFilter(world);
+        sampleMap = new ChunkSampleMap(plugin, world, MAX_CHUNK_DISTANCE);
+        sampleMap.load();
+        index = new SafeLocationIndex(plugin, world);
+        List<Location> stored = index.open();
+        // Only chunks with a stored spawn stay claimed; the others may be searched again.
+        long dropped = sampleMap.retainClaims(stored);
+        if (dropped > 0) {
+            plugin.getLogger().info("[" + name + "] Released " + dropped + " sampled chunks without a stored location.");
+        }
+        Collections.shuffle(stored);
+        unverifiedLocations.addAll(stored);
+        plugin.getLogger().info("[" + name + "] Loaded " + stored.size() + " stored locations, they will be revalidated as needed.");
+        // Runs on the global region thread: it only kicks off async chunk loads, the column checks happen on workers.
+        populatingTask = scheduling.runGlobalTimer(this::populateCache, 1L, 20L);
+        sampleMapSaveTask = scheduling.runAsyncTimer(sampleMap::save, SAMPLE_MAP_SAVE_INTERVAL, SAMPLE_MAP_SAVE_INTERVAL);
     }
 
     public void shutdown() {
         if (populatingTask != null) {
             populatingTask.cancel();
         }
-        plugin.getLogger().info("Clearing location cache and releasing " + safeLocationCache.size() + " chunk tickets.");
+        if (sampleMapSaveTask != null) {
+            sampleMapSaveTask.cancel();
+        }
+        if (sampleMap != null) {
+            sampleMap.save();
+        }
+        Reservation reservation;
+        while ((reservation = pendingReservations.poll()) != null) {
+            reservation.future.cancel(false);
+        }
+        plugin.getLogger().info("[" + name + "] Location search: " + getSearchReport());
+        plugin.getLogger().info("[" + name + "] Clearing location cache and releasing the chunk tickets of "
+                + (safeLocationCache.size() + heldBackLocations.size()) + " cached locations.");
         for (Location loc : safeLocationCache) {
-            loc.getWorld().removePluginChunkTicket(loc.getChunk().getX(), loc.getChunk().getZ(), plugin);
+            releaseTicket(loc);
+        }
+        for (Location loc : heldBackLocations) {
+            releaseTicket(loc);
         }
         safeLocationCache.clear();
+        heldBackLocations.clear();
+        unverifiedLocations.clear();
+        deferredLocations.clear();
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Override
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * The number of locations the finder tries to keep ready: every expected player plus headroom,
+     * plus whatever outstanding reservations still need.
+     */
+    public int getTargetCacheSize() {
+        int outstanding = 0;
+        for (Reservation reservation : pendingReservations) {
+            outstanding += reservation.remaining();
+        }
+        return Math.max(MIN_CACHE_SIZE, expectedPlayers.getAsInt() + CACHE_HEADROOM) + outstanding;
     }
 
     private void populateCache() {
-        // --- FIX ---
-        // If we are already searching for a location, don't start another search.
-        if (isFindingLocation || safeLocationCache.size() >= TARGET_CACHE_SIZE) {
-            if (safeLocationCache.size() >= TARGET_CACHE_SIZE && !cacheReadyMessageSent) {
-                plugin.getLogger().info("Location cache is full and ready for a game!");
-                Bukkit.getScheduler().runTask(plugin, () ->
-                        Bukkit.broadcast(MiniMessage.miniMessage().deserialize("<dark_green>[DeathSwap] <green>Location cache is full. Ready to start."), "deathswap.admin")
-                );
+        int target = getTargetCacheSize();
+        if (safeLocationCache.size() >= target) {
+            if (!cacheReadyMessageSent) {
+                plugin.getLogger().info("[" + name + "] Location cache is full and ready for a game!");
+                Bukkit.broadcast(MiniMessage.miniMessage().deserialize("<dark_green>[DeathSwap] <green>Location cache for <white>"
+                        + name + "</white> is full. Ready to start."), "deathswap.admin");
                 cacheReadyMessageSent = true;
             }
             return;
         }
 
         cacheReadyMessageSent = false;
-        findAndAddLocationToCache();
+        // Start as many searches as the budget allows, counting the ones already running toward the target.
+        while (activeSearches.get() < maxConcurrentSearches
+                && safeLocationCache.size() + activeSearches.get() < target) {
+            findAndAddLocationToCache();
+        }
     }
 
-    public Location getNextSafeLocation() {
-        Location loc = safeLocationCache.poll();
-        if (loc != null) {
-            plugin.getLogger().info("Using cached location and removing chunk ticket at: " + loc.toVector());
-            loc.getWorld().removePluginChunkTicket(loc.getChunk().getX(), loc.getChunk().getZ(), plugin);
-        } else {
-            plugin.getLogger().warning("Location cache is empty! The game might lag while finding a new location on-demand.");
-            return findLocationSynchronously();
+    /**
+     * Reserves {@code count} locations in one call. The future completes on the global region thread
+     * once enough locations have been found; it never falls back to a synchronous search.
+     * The locations are at least {@code swap.min-spawn-separation} blocks from each other and from the
+     * spawns of the previous reservation, so a new round does not reuse the last round's areas.
+     * Must be called from the global region thread.
+     */
+    @Override
+    public CompletableFuture<List<Location>> reserve(int count) {
+        startNewRound();
+        Reservation reservation = new Reservation(count);
+        // Earlier reservations are served first, so only what this call gets right away counts as a hit.
+        boolean queued = !pendingReservations.isEmpty();
+        pendingReservations.add(reservation);
+        fulfillReservations();
+        int hits = queued ? 0 : count - reservation.remaining();
+        metrics.recordCacheLookup(hits, count - hits);
+        if (!reservation.future.isDone()) {
+            plugin.getLogger().info("Reserved " + count + " locations, waiting for " + reservation.remaining() + " more.");
+            populateCache();
         }
-        return loc;
+        return reservation.future;
     }
 
-    private void findAndAddLocationToCache() {
-        // --- FIX ---
-        // Set the lock to prevent other tasks from starting.
-        isFindingLocation = true;
-        World world = Bukkit.getWorlds().getFirst();
-
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                for (int i = 0; i < 500; i++) {
-                    // Only add if the cache still needs locations.
-                    if (safeLocationCache.size() >= TARGET_CACHE_SIZE) {
-                        return;
+    private void fulfillReservations() {
+        Reservation reservation;
+        while ((reservation = pendingReservations.peek()) != null) {
+            if (reservation.future.isDone()) {
+                // Cancelled by the caller.
+                pendingReservations.poll();
+                continue;
+            }
+            while (reservation.remaining() > 0 && !safeLocationCache.isEmpty()) {
+                Location loc = safeLocationCache.iterator().next();
+                safeLocationCache.remove(loc);
+                currentRoundSpawns.add(loc);
+                releaseTicket(loc);
+                // Handed to a round, so it is retired rather than revalidated and reused after a restart.
+                index.remove(loc);
+                reservation.locations.add(loc);
+            }
+            if (reservation.remaining() > 0) {
+                return;
+            }
+            pendingReservations.poll();
+            reservation.future.complete(reservation.locations);
+        }
+    }
+
+    /**
+     * Scans a chunk for the pre-generator, generating it if needed. A chunk with safe columns adds one
+     * of them to the index and the revalidation queue and is claimed in the sample map; a chunk without
+     * any is recorded as rejected, so the random search never generates either of them again.
+     * A chunk whose spawn the index cannot take (it is full) stays unclaimed for the random search, since
+     * the revalidation queue alone does not survive a restart.
+     * Must be called from the global region thread; the future completes there.
+     *
+     * @return true if the chunk was scanned, false if the sample map already knew it.
+     */
+    public CompletableFuture<Boolean> pregenerateChunk(int chunkX, int chunkZ) {
+        if (sampleMap.isSampled(chunkX, chunkZ)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return scanner.scan(world, chunkX, chunkZ).thenApplyAsync(candidates -> {
+            if (candidates.isEmpty()) {
+                sampleMap.markRejected(chunkX, chunkZ);
+            } else if (sampleMap.claim(chunkX, chunkZ)) {
+                Location loc = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+                if (index.add(loc)) {
+                    if (unverifiedLocations.size() < MAX_UNVERIFIED) {
+                        unverifiedLocations.add(loc);
                     }
-                    int x = random.nextInt(MAX_DISTANCE * 2) - MAX_DISTANCE;
-                    int z = random.nextInt(MAX_DISTANCE * 2) - MAX_DISTANCE;
-                    Location loc = checker.getSafeLocationInColumn(world, x, z);
-                    if (loc != null) {
-                        plugin.getLogger().info("Found a new location. Adding chunk ticket at: " + loc.toVector());
-                        world.addPluginChunkTicket(loc.getChunk().getX(), loc.getChunk().getZ(), plugin);
-                        safeLocationCache.add(loc);
-                        plugin.getLogger().info("Cached a new location. Cache size: " + safeLocationCache.size());
-                        return; // Exit after finding one location.
+                } else {
+                    // Only the index survives a restart, so the chunk must stay available to the random search.
+                    sampleMap.release(chunkX, chunkZ);
+                    if (!indexFullMessageSent) {
+                        plugin.getLogger().warning("[" + name + "] Location index is full; pre-generation keeps generating"
+                                + " chunks but no longer claims them.");
+                        indexFullMessageSent = true;
                     }
                 }
-            } finally {
-                // --- FIX ---
-                // Always release the lock, even if no location was found.
-                isFindingLocation = false;
             }
+            return true;
+        }, global);
+    }
+
+    /**
+     * The spawns handed out so far become the ones to keep clear of, and cached spawns near them are
+     * held back until the reservation after this one. Deferred locations get another chance.
+     */
+    private void startNewRound() {
+        Location deferred;
+        while ((deferred = deferredLocations.poll()) != null) {
+            if (unverifiedLocations.size() < MAX_UNVERIFIED) {
+                unverifiedLocations.add(deferred);
+            }
+        }
+        previousRoundSpawns = currentRoundSpawns;
+        currentRoundSpawns = new SpawnGrid(minSeparation);
+        for (Location loc : heldBackLocations) {
+            safeLocationCache.add(loc);
+        }
+        heldBackLocations.clear();
+        for (Location loc : toList(safeLocationCache)) {
+            if (!previousRoundSpawns.isClear(loc)) {
+                safeLocationCache.remove(loc);
+                heldBackLocations.add(loc);
+            }
+        }
+    }
+
+    private static List<Location> toList(SpawnGrid grid) {
+        List<Location> list = new ArrayList<>(grid.size());
+        grid.forEach(list::add);
+        return list;
+    }
+
+    /**
+     * @return true if the location keeps the minimum separation to every cached spawn and every spawn
+     * handed out for the current round.
+     */
+    private boolean isSeparated(Location loc) {
+        return safeLocationCache.isClear(loc) && heldBackLocations.isClear(loc) && currentRoundSpawns.isClear(loc);
+    }
+
+    /**
+     * Picks a random column of the chunk that keeps the minimum separation, or null if none does.
+     */
+    private Location pickSeparated(List<Location> candidates) {
+        int start = ThreadLocalRandom.current().nextInt(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            Location loc = candidates.get((start + i) % candidates.size());
+            if (isSeparated(loc)) {
+                return loc;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pins the location's chunk through the ticket manager, which may evict older cached spawns to make room.
+     * @return false if the manager is at its cap and nothing could be evicted.
+     */
+    private boolean addTicket(Location loc) {
+        plugin.getLogger().info("Adding chunk ticket at: " + loc.toVector());
+        return tickets.acquire(loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+    }
+
+    private void releaseTicket(Location loc) {
+        tickets.release(loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+    }
+
+    /**
+     * Called by the ticket manager when it is full: drops the least useful cached spawn, i.e. the oldest
+     * held-back one, otherwise the oldest ready one. Dropped spawns stay in the on-disk index and are queued
+     * for revalidation again, so they can come back once there is room.
+     * Spawns are not evicted while a reservation is waiting for them.
+     * @return false if there was nothing to evict.
+     */
+    private boolean evictLeastUseful() {
+        SpawnGrid source = !heldBackLocations.isEmpty() ? heldBackLocations
+                : pendingReservations.isEmpty() ? safeLocationCache : null;
+        if (source == null || source.isEmpty()) {
+            return false;
+        }
+        Location oldest = source.iterator().next();
+        source.remove(oldest);
+        releaseTicket(oldest);
+        if (unverifiedLocations.size() < MAX_UNVERIFIED) {
+            unverifiedLocations.add(oldest);
+        }
+        return true;
+    }
+
+    private void findAndAddLocationToCache() {
+        activeSearches.incrementAndGet();
+        JfrEvents.LocationSearch event = new JfrEvents.LocationSearch();
+        event.begin();
+
+        revalidateStoredLocation(world, event).whenComplete((loc, throwable) -> {
+            if (throwable != null) {
+                plugin.getLogger().warning("Location search failed: " + throwable.getMessage());
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.arena = name;
+                event.world = world.getName();
+                event.found = loc != null;
+                event.commit();
+            }
+            // Always release the slot, even if no location was found.
+            activeSearches.decrementAndGet();
         });
     }
 
-    private Location findLocationSynchronously() {
-        World world = Bukkit.getWorlds().getFirst();
-        for (int i = 0; i < 1000; i++) {
-            int x = random.nextInt(MAX_DISTANCE * 2) - MAX_DISTANCE;
-            int z = random.nextInt(MAX_DISTANCE * 2) - MAX_DISTANCE;
-            Location loc = checker.getSafeLocationInColumn(world, x, z);
-            if (loc != null) return loc;
+    /**
+     * Scans random chunks one after another until one of them contains a safe column.
+     * Candidates are first checked against the biome source on a worker thread, so ocean chunks are
+     * never requested. The chunk itself is looked up from the region that owns it, and the chosen location
+     * is added to the cache on the global region thread, together with its chunk ticket.
+     */
+    private CompletableFuture<Location> searchChunks(World world, int attemptsLeft, JfrEvents.LocationSearch event) {
+        // Only add if the cache still needs locations.
+        if (attemptsLeft <= 0 || safeLocationCache.size() >= getTargetCacheSize()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.supplyAsync(this::pickCandidateChunk, worker).thenComposeAsync(chunkKey -> {
+            if (chunkKey == null) {
+                return searchChunks(world, attemptsLeft - 1, event);
+            }
+            int chunkX = (int) (chunkKey >> 32);
+            int chunkZ = (int) chunkKey.longValue();
+
+            return CompletableFuture.supplyAsync(() -> {
+                boolean generates = !world.isChunkGenerated(chunkX, chunkZ);
+                if (generates) {
+                    chunksGenerated.incrementAndGet();
+                    event.chunksGenerated++;
+                }
+                event.chunksScanned++;
+                return generates;
+            }, scheduling.atChunk(world, chunkX, chunkZ)).thenCompose(generates -> scanner.scan(world, chunkX, chunkZ)
+                    .thenApply(candidates -> new ScannedChunk(generates, candidates))
+            ).whenComplete((scanned, throwable) -> {
+                if (throwable != null) {
+                    // Neither a spawn nor a rejection was recorded, so the chunk may be sampled again.
+                    sampleMap.release(chunkX, chunkZ);
+                }
+            }).thenComposeAsync(scanned -> {
+                List<Location> candidates = scanned.candidates();
+                if (candidates.isEmpty()) {
+                    if (scanned.generated()) {
+                        wastedGenerations.incrementAndGet();
+                    }
+                    sampleMap.markRejected(chunkX, chunkZ);
+                    return searchChunks(world, attemptsLeft - 1, event);
+                }
+                // Cache a single column per chunk; the others are kept for later rounds. The chunk stays
+                // claimed in the sample map, so it is not handed out again.
+                Location loc = pickSeparated(candidates);
+                if (loc == null) {
+                    // Every safe column is too close to a cached spawn; keep them for later rounds and move on.
+                    tooCloseCandidates.incrementAndGet();
+                    keepExtraColumns(candidates, null);
+                    return searchChunks(world, attemptsLeft - 1, event);
+                }
+                plugin.getLogger().info("Found a new location (" + candidates.size() + " safe columns in chunk).");
+                index.add(loc);
+                keepExtraColumns(candidates, loc);
+                addToCache(loc);
+                metrics.recordAcceptedLocation();
+                if (acceptedLocations.incrementAndGet() % REPORT_INTERVAL == 0) {
+                    plugin.getLogger().info("Location search: " + getSearchReport());
+                }
+                return CompletableFuture.completedFuture(loc);
+            }, global);
+        }, global);
+    }
+
+    /**
+     * Stores up to {@link #EXTRA_COLUMNS_PER_CHUNK} safe columns of a searched chunk, other than {@code taken},
+     * in the index and the revalidation queue. Columns of one chunk are too close to share a round, but
+     * each can serve a later one; the minimum separation is checked again when they are cached.
+     */
+    private void keepExtraColumns(List<Location> candidates, Location taken) {
+        int stride = Math.max(1, candidates.size() / EXTRA_COLUMNS_PER_CHUNK);
+        int start = ThreadLocalRandom.current().nextInt(candidates.size());
+        int kept = 0;
+        for (int i = 0; i < candidates.size() && kept < EXTRA_COLUMNS_PER_CHUNK; i += stride) {
+            Location column = candidates.get((start + i) % candidates.size());
+            if (column == taken || !index.add(column)) continue;
+            if (unverifiedLocations.size() < MAX_UNVERIFIED) {
+                unverifiedLocations.add(column);
+            }
+            kept++;
+        }
+    }
+
+    /**
+     * Claims random, not yet sampled chunks from the sample map until one passes the biome pre-filter.
+     * @return the packed chunk key, or null if every sample was rejected.
+     */
+    private Long pickCandidateChunk() {
+        for (int i = 0; i < PREFILTER_SAMPLES; i++) {
+            int cell = sampleMap.claimRandomCell();
+            if (cell < 0) {
+                if (!sampleMapExhaustedMessageSent) {
+                    plugin.getLogger().warning("[" + name + "] Every chunk within " + MAX_DISTANCE
+                            + " blocks has already been sampled.");
+                    sampleMapExhaustedMessageSent = true;
+                }
+                return null;
+            }
+            int chunkX = sampleMap.chunkX(cell);
+            int chunkZ = sampleMap.chunkZ(cell);
+            if (preFilter.shouldScan(chunkX, chunkZ)) {
+                return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+            }
+            // Biomes are fixed by the seed, so this chunk never needs to be looked at again.
+            sampleMap.markRejected(chunkX, chunkZ);
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Summary of how much chunk generation the random search has cost so far.
+     */
+    public String getSearchReport() {
+        long accepted = acceptedLocations.get();
+        long generated = chunksGenerated.get();
+        long wasted = wastedGenerations.get();
+        double wastedPerAccepted = accepted == 0 ? wasted : (double) wasted / accepted;
+        return String.format("%d spawns accepted, %d chunks generated, %d wasted (%.2f wasted generations per accepted spawn), "
+                        + "biome pre-filter skipped %d chunks and %d samples in known ocean regions, "
+                        + "%d chunks rejected and %d claimed in the sample map, "
+                        + "%d candidates closer than %d blocks to another spawn, %d spawns held back from the last round",
+                accepted, generated, wasted, wastedPerAccepted,
+                preFilter == null ? 0 : preFilter.getRejectedByChunk(),
+                preFilter == null ? 0 : preFilter.getRejectedByRegion(),
+                sampleMap == null ? 0 : sampleMap.getRejectedCount(),
+                sampleMap == null ? 0 : sampleMap.getClaimedCount(),
+                tooCloseCandidates.get(), minSeparation, heldBackLocations.size());
+    }
+
+    /**
+     * Re-checks locations from the on-disk index before falling back to a random search. A stored
+     * location only needs its (already generated) chunk loaded, which is far cheaper than discovery.
+     */
+    private CompletableFuture<Location> revalidateStoredLocation(World world, JfrEvents.LocationSearch event) {
+        Location stored = unverifiedLocations.poll();
+        if (stored == null) {
+            return searchChunks(world, CHUNKS_PER_SEARCH, event);
+        }
+        if (safeLocationCache.size() >= getTargetCacheSize()) {
+            unverifiedLocations.add(stored);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        event.storedChecked++;
+        return scanner.checkLocation(world, stored).thenComposeAsync(loc -> {
+            if (loc == null) {
+                index.remove(stored);
+                sampleMap.release(stored.getBlockX() >> 4, stored.getBlockZ() >> 4);
+                return revalidateStoredLocation(world, event);
+            }
+            if (!isSeparated(loc)) {
+                // Still safe, just too close to a cached spawn right now; try it again after the next reservation.
+                tooCloseCandidates.incrementAndGet();
+                if (deferredLocations.size() < MAX_UNVERIFIED) {
+                    deferredLocations.add(loc);
+                }
+                return revalidateStoredLocation(world, event);
+            }
+            addToCache(loc);
+            metrics.recordAcceptedLocation();
+            return CompletableFuture.completedFuture(loc);
+        }, global);
+    }
+
+    /**
+     * Caches a location that {@link #isSeparated} accepted. Locations near the previous round's spawns
+     * are held back until the next reservation.
+     */
+    private void addToCache(Location loc) {
+        if (!addTicket(loc)) {
+            plugin.getLogger().warning("[" + name + "] Chunk ticket cap reached, not caching " + loc.toVector() + ".");
+            return;
+        }
+        if (previousRoundSpawns.isClear(loc)) {
+            safeLocationCache.add(loc);
+        } else {
+            heldBackLocations.add(loc);
+        }
+        plugin.getLogger().info("Cached a new location. Cache size: " + safeLocationCache.size());
+        fulfillReservations();
+    }
+
+    private record ScannedChunk(boolean generated, List<Location> candidates) {
+    }
+
+    private static final class Reservation {
+        private final int count;
+        private final List<Location> locations;
+        private final CompletableFuture<List<Location>> future = new CompletableFuture<>();
+
+        private Reservation(int count) {
+            this.count = count;
+            this.locations = new ArrayList<>(count);
+        }
+
+        private int remaining() {
+            return count - locations.size();
+        }
+    }
+}
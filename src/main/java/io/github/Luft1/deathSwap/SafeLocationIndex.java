@@ -0,0 +1,204 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Persistent store of verified safe locations for a single world.
+ * <p>
+ * The file lives at {@code <data folder>/locations/<world uuid>.idx} and is memory-mapped. It starts
+ * with a fixed header (magic, version, world UUID, seed, record count) followed by fixed-size
+ * records of {@code x, y, z, flags}. Removed locations are only flagged as dead and are dropped
+ * the next time the file is compacted on open. A file written for a different UUID or seed is discarded.
+ */
+public class SafeLocationIndex {
+
+    private static final int MAGIC = 0x44534C49; // "DSLI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    private static final int COUNT_OFFSET = 32;
+    private static final int RECORD_SIZE = 16;
+    private static final int FLAGS_OFFSET = 12;
+    private static final int FLAG_LIVE = 1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RECORDS = 1 << 16;
+
+    private final JavaPlugin plugin;
+    private final World world;
+    private final File file;
+
+    // Column key -> record slot, for de-duplication and removal. Only live records are present.
+    private final Map<Long, Integer> recordsByColumn = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int recordCount;
+
+    public SafeLocationIndex(JavaPlugin plugin, World world) {
+        this.plugin = plugin;
+        this.world = world;
+        this.file = new File(new File(plugin.getDataFolder(), "locations"), world.getUID() + ".idx");
+    }
+
+    /**
+     * Opens (or creates) the index file and returns every live location stored in it.
+     * The returned locations have not been checked against the current world yet.
+     */
+    public synchronized List<Location> open() {
+        List<Location> stored = new ArrayList<>();
+        try {
+            File parent = file.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("could not create " + parent);
+            }
+            channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+
+            if (channel.size() >= HEADER_SIZE && mapExisting()) {
+                int deadRecords = 0;
+                for (int i = 0; i < recordCount; i++) {
+                    int offset = HEADER_SIZE + i * RECORD_SIZE;
+                    if ((buffer.getInt(offset + FLAGS_OFFSET) & FLAG_LIVE) == 0) {
+                        deadRecords++;
+                        continue;
+                    }
+                    stored.add(new Location(world,
+                            buffer.getInt(offset) + 0.5, buffer.getInt(offset + 4), buffer.getInt(offset + 8) + 0.5));
+                }
+                if (deadRecords > stored.size()) {
+                    plugin.getLogger().info("Compacting location index " + file.getName() + " (" + deadRecords + " dead records).");
+                    reset();
+                    stored.forEach(this::add);
+                } else {
+                    for (int i = 0; i < recordCount; i++) {
+                        int offset = HEADER_SIZE + i * RECORD_SIZE;
+                        if ((buffer.getInt(offset + FLAGS_OFFSET) & FLAG_LIVE) != 0) {
+                            recordsByColumn.put(columnKey(buffer.getInt(offset), buffer.getInt(offset + 8)), i);
+                        }
+                    }
+                }
+            } else {
+                reset();
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not open location index " + file.getName() + ": " + e.getMessage());
+            close();
+            stored.clear();
+        }
+        return stored;
+    }
+
+    /**
+     * Stores a verified location. Columns that are already stored are ignored.
+     * @return false if the location is not stored, because the index is full or could not be opened.
+     */
+    public synchronized boolean add(Location loc) {
+        if (buffer == null) return false;
+        long key = columnKey(loc.getBlockX(), loc.getBlockZ());
+        if (recordsByColumn.containsKey(key)) return true;
+        if (recordCount >= capacity && !grow()) return false;
+
+        int offset = HEADER_SIZE + recordCount * RECORD_SIZE;
+        buffer.putInt(offset, loc.getBlockX());
+        buffer.putInt(offset + 4, loc.getBlockY());
+        buffer.putInt(offset + 8, loc.getBlockZ());
+        buffer.putInt(offset + FLAGS_OFFSET, FLAG_LIVE);
+        recordsByColumn.put(key, recordCount);
+        recordCount++;
+        buffer.putInt(COUNT_OFFSET, recordCount);
+        return true;
+    }
+
+    /**
+     * Marks a stored location as dead, e.g. because it failed revalidation.
+     */
+    public synchronized void remove(Location loc) {
+        if (buffer == null) return;
+        Integer slot = recordsByColumn.remove(columnKey(loc.getBlockX(), loc.getBlockZ()));
+        if (slot != null) {
+            buffer.putInt(HEADER_SIZE + slot * RECORD_SIZE + FLAGS_OFFSET, 0);
+        }
+    }
+
+    public synchronized int size() {
+        return recordsByColumn.size();
+    }
+
+    public synchronized void close() {
+        try {
+            if (buffer != null) {
+                buffer.force();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not close location index " + file.getName() + ": " + e.getMessage());
+        }
+        buffer = null;
+        channel = null;
+        recordsByColumn.clear();
+    }
+
+    private boolean mapExisting() throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        UUID uid = world.getUID();
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getLong(8) != uid.getMostSignificantBits()
+                || buffer.getLong(16) != uid.getLeastSignificantBits()
+                || buffer.getLong(24) != world.getSeed()) {
+            plugin.getLogger().info("Location index " + file.getName() + " belongs to another world or seed, discarding it.");
+            return false;
+        }
+        capacity = (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+        recordCount = buffer.getInt(COUNT_OFFSET);
+        return recordCount >= 0 && recordCount <= capacity;
+    }
+
+    private void reset() throws IOException {
+        recordsByColumn.clear();
+        // Reuse the existing file length instead of truncating: a mapped file cannot be truncated on every platform.
+        long size = Math.max(channel.size(), HEADER_SIZE + (long) INITIAL_CAPACITY * RECORD_SIZE);
+        capacity = (int) Math.min((size - HEADER_SIZE) / RECORD_SIZE, MAX_RECORDS);
+        recordCount = 0;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        UUID uid = world.getUID();
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, uid.getMostSignificantBits());
+        buffer.putLong(16, uid.getLeastSignificantBits());
+        buffer.putLong(24, world.getSeed());
+        buffer.putInt(COUNT_OFFSET, 0);
+    }
+
+    private boolean grow() {
+        if (capacity >= MAX_RECORDS) return false;
+        try {
+            int newCapacity = Math.min(capacity * 2, MAX_RECORDS);
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * RECORD_SIZE);
+            capacity = newCapacity;
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not grow location index " + file.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static long columnKey(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+}
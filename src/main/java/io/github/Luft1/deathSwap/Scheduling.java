@@ -0,0 +1,131 @@
+package io.github.Luft1.deathSwap;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Routes work to the thread that owns it, using Paper's region-aware schedulers.
+ * <p>
+ * On Folia round state lives on the global region thread, each player is only touched on the thread
+ * of the region they are in, and chunks on the thread of the region that contains them. On classic
+ * Paper the same schedulers all run on the main thread, so nothing changes there. Work that is
+ * already on the owning thread runs inline instead of waiting for the next tick.
+ */
+public final class Scheduling {
+
+    private static final boolean FOLIA = classExists("io.papermc.paper.threadedregions.RegionizedServer");
+
+    private final Plugin plugin;
+    private final Executor global;
+
+    public Scheduling(Plugin plugin) {
+        this.plugin = plugin;
+        this.global = task -> {
+            if (Bukkit.isGlobalTickThread()) {
+                task.run();
+            } else {
+                Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+            }
+        };
+    }
+
+    public static boolean isFolia() {
+        return FOLIA;
+    }
+
+    /**
+     * @return true on the thread that owns round state (the main thread on classic Paper).
+     */
+    public static boolean isGlobalThread() {
+        return Bukkit.isGlobalTickThread();
+    }
+
+    /**
+     * Runs tasks on the global region thread, inline if already there.
+     */
+    public Executor global() {
+        return global;
+    }
+
+    public void runGlobal(Runnable task) {
+        global.execute(task);
+    }
+
+    public ScheduledTask runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, scheduled -> task.run(),
+                Math.max(1L, delayTicks), Math.max(1L, periodTicks));
+    }
+
+    public ScheduledTask runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return Bukkit.getAsyncScheduler().runAtFixedRate(plugin, scheduled -> task.run(),
+                delayTicks * 50L, periodTicks * 50L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs tasks on the thread that owns the given chunk, inline if already there.
+     */
+    public Executor atChunk(World world, int chunkX, int chunkZ) {
+        return task -> {
+            if (Bukkit.isOwnedByCurrentRegion(world, chunkX, chunkZ)) {
+                task.run();
+            } else {
+                Bukkit.getRegionScheduler().execute(plugin, world, chunkX, chunkZ, task);
+            }
+        };
+    }
+
+    /**
+     * Runs {@code task} on the thread that owns the entity, inline if already there. If the entity is
+     * removed first (e.g. the player left), {@code retired} runs instead, so callers always get one of
+     * the two callbacks.
+     */
+    public void runForEntity(Entity entity, Runnable task, Runnable retired) {
+        if (Bukkit.isOwnedByCurrentRegion(entity)) {
+            task.run();
+        } else if (!entity.getScheduler().execute(plugin, task, retired, 1L)) {
+            retired.run();
+        }
+    }
+
+    /**
+     * Runs {@code task} on the thread that owns the entity; nothing happens if the entity is removed first.
+     */
+    public void runForEntity(Entity entity, Runnable task) {
+        runForEntity(entity, task, () -> {
+        });
+    }
+
+    /**
+     * Evaluates {@code supplier} on the thread that owns the entity. The future completes with
+     * {@code null} if the entity is removed before that happens.
+     */
+    public <T> CompletableFuture<T> callForEntity(Entity entity, Supplier<T> supplier) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                result.complete(supplier.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        };
+        runForEntity(entity, task, () -> result.complete(null));
+        return result;
+    }
+
+    private static boolean classExists(String name) {
+        try {
+            Class.forName(name);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
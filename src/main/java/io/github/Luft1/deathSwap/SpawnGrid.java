@@ -0,0 +1,131 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spawn points of one world in a spatial hash, bucketed into square cells as wide as the minimum
+ * separation. Whether a point has a neighbour closer than the separation only needs the 3x3 cells
+ * around it, so Poisson-disk style acceptance stays cheap however many points are stored.
+ * <p>
+ * Distances are horizontal only. Points are iterated in insertion order. Not thread-safe; the finder
+ * only uses it on the global region thread.
+ */
+public class SpawnGrid implements Iterable<Location> {
+
+    private final int separation;
+    private final long separationSquared;
+    private final int cellSize;
+    private final Map<Long, List<Location>> cells = new HashMap<>();
+    private final LinkedHashSet<Location> points = new LinkedHashSet<>();
+
+    /**
+     * @param separation minimum distance in blocks between accepted points; 0 disables the check.
+     */
+    public SpawnGrid(int separation) {
+        this.separation = Math.max(0, separation);
+        this.separationSquared = (long) this.separation * this.separation;
+        this.cellSize = Math.max(1, this.separation);
+    }
+
+    public int getSeparation() {
+        return separation;
+    }
+
+    /**
+     * @return true if no stored point lies closer than the separation to the given block position.
+     */
+    public boolean isClear(int x, int z) {
+        if (separation == 0 || points.isEmpty()) {
+            return true;
+        }
+        int cellX = Math.floorDiv(x, cellSize);
+        int cellZ = Math.floorDiv(z, cellSize);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                List<Location> bucket = cells.get(key(cellX + dx, cellZ + dz));
+                if (bucket == null) continue;
+                for (Location other : bucket) {
+                    long ox = other.getBlockX() - x;
+                    long oz = other.getBlockZ() - z;
+                    if (ox * ox + oz * oz < separationSquared) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean isClear(Location loc) {
+        return isClear(loc.getBlockX(), loc.getBlockZ());
+    }
+
+    /**
+     * Stores a point without checking its neighbours, e.g. one that was accepted against another grid.
+     */
+    public void add(Location loc) {
+        if (points.add(loc)) {
+            cells.computeIfAbsent(key(Math.floorDiv(loc.getBlockX(), cellSize), Math.floorDiv(loc.getBlockZ(), cellSize)),
+                    k -> new ArrayList<>(2)).add(loc);
+        }
+    }
+
+    /**
+     * Stores the point only if it keeps the minimum separation to every stored point.
+     * @return false if it was too close.
+     */
+    public boolean offer(Location loc) {
+        if (!isClear(loc)) {
+            return false;
+        }
+        add(loc);
+        return true;
+    }
+
+    public boolean remove(Location loc) {
+        if (!points.remove(loc)) {
+            return false;
+        }
+        long key = key(Math.floorDiv(loc.getBlockX(), cellSize), Math.floorDiv(loc.getBlockZ(), cellSize));
+        List<Location> bucket = cells.get(key);
+        bucket.remove(loc);
+        if (bucket.isEmpty()) {
+            cells.remove(key);
+        }
+        return true;
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    public boolean isEmpty() {
+        return points.isEmpty();
+    }
+
+    public void clear() {
+        points.clear();
+        cells.clear();
+    }
+
+    /**
+     * Iterates in insertion order. Removing through the iterator is not supported, use {@link #remove}
+     * on a copy instead.
+     */
+    @Override
+    public Iterator<Location> iterator() {
+        return Collections.unmodifiableSet(points).iterator();
+    }
+
+    private static long key(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
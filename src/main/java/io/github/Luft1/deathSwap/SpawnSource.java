@@ -0,0 +1,22 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where a {@link SwapManager} gets its round spawns from. {@link SafeLocationFinder} is the real one;
+ * the load simulation substitutes a source that needs no terrain.
+ */
+public interface SpawnSource {
+
+    /**
+     * Reserves {@code count} spawns. The future completes on the global region thread.
+     * Must be called from the global region thread.
+     */
+    CompletableFuture<List<Location>> reserve(int count);
+
+    World getWorld();
+}
@@ -0,0 +1,184 @@
+package io.github.Luft1.deathSwap;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Applies the teleports of a swap in batches spread over several ticks.
+ * <p>
+ * Destinations are captured by the caller in a single tick, so every player is sent to where the
+ * other player stood at the moment of the swap no matter which tick their own teleport lands in.
+ * Each tick the executor starts at most {@code batchSize} teleports and stops early once its time
+ * budget is used up. The batch size grows while ticks stay on time and is halved when they overrun.
+ * <p>
+ * Batches are issued from the global region thread, but each teleport is started on the thread that
+ * owns the travelling player, so on Folia the teleports of one swap run in parallel across regions.
+ * <p>
+ * Runs are not tied to a round on the clock; the owner calls {@link #cancel()} when its round ends.
+ */
+public class SwapExecutor {
+
+    private static final int MIN_BATCH_SIZE = 1;
+    private static final long TICK_NANOS = 50_000_000L;
+    // A tick interval this much over 50 ms counts as an overrun.
+    private static final long OVERRUN_TOLERANCE_NANOS = 5_000_000L;
+
+    private final RoundClock clock;
+    private final Scheduling scheduling;
+    private final SwapMetrics metrics;
+    private final RoundJournal journal;
+    private final int maxBatchSize;
+    private final long tickBudgetNanos;
+
+    // Carried across swaps so each swap starts from what the last one learned.
+    private int batchSize;
+    // Runs that are still issuing teleports, by the future execute() returned for them; see cancel().
+    private final Map<CompletableFuture<Void>, Runnable> stopActive = new IdentityHashMap<>();
+
+    public SwapExecutor(RoundClock clock, Scheduling scheduling, SwapMetrics metrics, RoundJournal journal,
+                        int maxBatchSize, long tickBudgetNanos) {
+        this.clock = clock;
+        this.scheduling = scheduling;
+        this.metrics = metrics;
+        this.journal = journal;
+        this.maxBatchSize = Math.max(MIN_BATCH_SIZE, maxBatchSize);
+        this.tickBudgetNanos = tickBudgetNanos;
+        this.batchSize = this.maxBatchSize;
+    }
+
+    /**
+     * Teleports {@code players[i]} to {@code locations[targets[i]]}, which is where {@code players[targets[i]]}
+     * stood, for every {@code i < count}. The arrays are read over several ticks and must not be
+     * modified until the returned future completes.
+     *
+     * @param round           the round the teleports belong to, for the journal.
+     * @param isStillEligible checked right before each teleport, so eliminated players are skipped.
+     * @param onArrived       called on the global region thread with (traveller, owner) once a teleport succeeds.
+     * @return a future that completes on the global region thread once every teleport has finished, or once
+     *         the teleports already started have finished after {@link #cancel()}.
+     */
+    public CompletableFuture<Void> execute(Player[] players, Location[] locations, int[] targets, int count, int round,
+                                           Predicate<Player> isStillEligible, BiConsumer<Player, Player> onArrived) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        var step = new Runnable() {
+            private final List<CompletableFuture<Boolean>> teleports = new ArrayList<>(count);
+            private int next;
+            private long lastRun;
+            private RoundClock.Handle handle;
+            // Stops issuing teleports; the future completes once those already started have settled.
+            private void finish() {
+                if (stopActive.remove(done) == null) return;
+                next = count;
+                handle.cancel();
+                CompletableFuture.allOf(teleports.toArray(new CompletableFuture[0]))
+                        .whenCompleteAsync((ignored, throwable) -> {
+                            if (throwable != null) {
+                                done.completeExceptionally(throwable);
+                            } else {
+                                done.complete(null);
+                            }
+                        }, scheduling.global());
+            }
+
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                adjustBatchSize(lastRun == 0 ? TICK_NANOS : start - lastRun);
+                lastRun = start;
+
+                int issued = 0;
+                while (next < count && issued < batchSize
+                        && (issued == 0 || System.nanoTime() - start < tickBudgetNanos)) {
+                    int i = next++;
+                    Player traveller = players[i];
+                    if (!traveller.isOnline() || !isStillEligible.test(traveller)) continue;
+
+                    int target = targets[i];
+                    Player owner = players[target];
+                    Location destination = locations[target];
+                    // The owner left before their position could be read, so there is nowhere to send the traveller.
+                    if (destination == null) continue;
+                    CompletableFuture<Boolean> teleport = new CompletableFuture<>();
+                    // teleportAsync has to be called by the region that owns the traveller.
+                    scheduling.runForEntity(traveller, () -> {
+                        if (owner != traveller) {
+                            traveller.sendMessage("swapping to " + owner.getName() + "'s location");
+                        }
+                        long sent = System.nanoTime();
+                        traveller.teleportAsync(destination).whenComplete((success, throwable) -> {
+                            long latency = System.nanoTime() - sent;
+                            metrics.recordTeleport(latency);
+                            // Recorded on the traveller's region thread; the tick is the clock's last completed one.
+                            journal.teleport(clock.getCurrentTick(), round, traveller.getUniqueId(), owner.getUniqueId(),
+                                    latency, throwable == null && Boolean.TRUE.equals(success));
+                            if (throwable != null) {
+                                teleport.completeExceptionally(throwable);
+                            } else {
+                                teleport.complete(success);
+                            }
+                        });
+                    }, () -> teleport.complete(false)); // The player left before their turn.
+                    // Attribution is round state, so it is recorded back on the global thread.
+                    teleports.add(teleport.thenApplyAsync(success -> {
+                        if (success) {
+                            onArrived.accept(traveller, owner);
+                        }
+                        return success;
+                    }, scheduling.global()));
+                    issued++;
+                }
+
+                if (next >= count) {
+                    finish();
+                }
+            }
+        };
+        // Detached from the round so the future always completes: cancel() stops the run when its round ends.
+        step.handle = clock.scheduleRepeatingDetached(1L, 1L, step);
+        stopActive.put(done, step::finish);
+        return done;
+    }
+
+    /**
+     * Stops every run from issuing further teleports. Must be called on the global region thread.
+     */
+    public void cancel() {
+        for (Runnable stop : new ArrayList<>(stopActive.values())) {
+            stop.run();
+        }
+    }
+
+    /**
+     * Stops one run, identified by the future {@link #execute} returned for it, from issuing further teleports.
+     * Does nothing if it has already issued all of them. Must be called on the global region thread.
+     */
+    public void cancel(CompletableFuture<Void> run) {
+        Runnable stop = stopActive.get(run);
+        if (stop != null) {
+            stop.run();
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Additive increase while ticks are on time, multiplicative decrease when they overrun.
+     */
+    private void adjustBatchSize(long tickIntervalNanos) {
+        if (tickIntervalNanos > TICK_NANOS + OVERRUN_TOLERANCE_NANOS) {
+            batchSize = Math.max(MIN_BATCH_SIZE, batchSize / 2);
+        } else if (batchSize < maxBatchSize) {
+            batchSize = Math.min(maxBatchSize, batchSize + Math.max(1, batchSize / 4));
+        }
+    }
+}
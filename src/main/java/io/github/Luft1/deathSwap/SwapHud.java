@@ -0,0 +1,123 @@
+package io.github.Luft1.deathSwap;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+
+import java.util.Locale;
+
+/**
+ * Renders the time-since-last-swap display for all contestants.
+ * <p>
+ * There are only {@code maxSeconds + 1} distinct frames, so each one is parsed by MiniMessage
+ * once and cached. A frame is sent once through a single {@link Audience} backed by the contestant
+ * collection instead of being re-parsed per player. In boss-bar mode a single {@link BossBar} is
+ * reused and only updated once per second.
+ */
+public class SwapHud {
+
+    public enum Mode {
+        ACTION_BAR,
+        BOSS_BAR;
+
+        public static Mode fromConfig(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return ACTION_BAR;
+            }
+        }
+    }
+
+    // Spare frames for the few seconds a spread-out swap can run past the maximum.
+    private static final int OVERRUN_FRAMES = 30;
+
+    private final Mode mode;
+    private final int maxSeconds;
+    private final Component[] frames;
+    private final BossBar bossBar;
+    private Audience audience = Audience.empty();
+
+    public SwapHud(Mode mode, int maxSeconds) {
+        this.mode = mode;
+        this.maxSeconds = maxSeconds;
+        this.frames = new Component[maxSeconds + OVERRUN_FRAMES + 1];
+        this.bossBar = BossBar.bossBar(Component.empty(), 0f, BossBar.Color.GREEN, BossBar.Overlay.PROGRESS);
+    }
+
+    /**
+     * Sets who sees the HUD. The audience is a live view, so later changes to the collection are picked up.
+     */
+    public void setViewers(Iterable<? extends Audience> viewers) {
+        hide();
+        this.audience = Audience.audience(viewers);
+    }
+
+    /**
+     * Stops showing the HUD to a single player, e.g. one who was just eliminated.
+     */
+    public void removeViewer(Audience viewer) {
+        if (mode == Mode.BOSS_BAR) {
+            viewer.hideBossBar(bossBar);
+        }
+    }
+
+    public void render(long elapsedSeconds) {
+        Component frame = frame(elapsedSeconds);
+        if (mode == Mode.BOSS_BAR) {
+            float progress = Math.min(1f, (float) elapsedSeconds / maxSeconds);
+            bossBar.name(frame);
+            bossBar.progress(progress);
+            bossBar.color(progress > 0.8f ? BossBar.Color.RED : progress > 0.5f ? BossBar.Color.YELLOW : BossBar.Color.GREEN);
+            // Showing is idempotent, so this only sends the bar to contestants that do not have it yet.
+            audience.showBossBar(bossBar);
+        } else {
+            audience.sendActionBar(frame);
+        }
+    }
+
+    public void hide() {
+        if (mode == Mode.BOSS_BAR) {
+            audience.hideBossBar(bossBar);
+        }
+        audience = Audience.empty();
+    }
+
+    public Component frame(long elapsedSeconds) {
+        if (elapsedSeconds < 0 || elapsedSeconds >= frames.length) {
+            return MiniMessage.miniMessage().deserialize(formatFrame(elapsedSeconds, maxSeconds));
+        }
+        int index = (int) elapsedSeconds;
+        Component frame = frames[index];
+        if (frame == null) {
+            frame = MiniMessage.miniMessage().deserialize(formatFrame(elapsedSeconds, maxSeconds));
+            frames[index] = frame;
+        }
+        return frame;
+    }
+
+    /**
+     * The MiniMessage markup for a frame, including the hazard level for how close the next swap may be.
+     */
+    static String formatFrame(long elapsedSeconds, int maxSeconds) {
+        // Determine the color and hazard level based on how close the next swap is.
+        double dangerRatio = (double) elapsedSeconds / maxSeconds;
+        String color;
+        String hazardLevel;
+        if (dangerRatio > 0.8) {
+            color = "<red>";
+            hazardLevel = "DANGER";
+        } else if (dangerRatio > 0.5) {
+            color = "<yellow>";
+            hazardLevel = "UNSAFE";
+        } else {
+            color = "<green>";
+            hazardLevel = "SAFE";
+        }
+
+        // Format the message to include the timer and the hazard level
+        return String.format("%s%s | Time: %02d:%02d",
+                color, hazardLevel, elapsedSeconds / 60, elapsedSeconds % 60);
+    }
+}
@@ -1,321 +1,782 @@
 
 package io.github.Luft1.deathSwap;
 
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
+import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.bukkit.*;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.plugin.Plugin;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SwapManager implements Listener {
-    private final DeathSwap SwapPlugin;
-    private final SafeLocationFinder finder;
-    private boolean roundInProgress = false;
-    private final ArrayList<Player> contestants = new ArrayList<>();
-    private final ArrayList<Player> spectators = new ArrayList<>();
-    private final HashSet<BukkitTask> bukkitTasks = new HashSet<>();
-    private final int MAX_TIME_BETWEEN_SWAPS = 120;
+
+    public enum RoundState {
+        IDLE,
+        // Spawns are being reserved and contestants placed; the swap clock is not armed yet.
+        PREPARING,
+        RUNNING
+    }
+
+    private final Plugin SwapPlugin;
+    private final Scheduling scheduling;
+    private final SwapMetrics metrics;
+    private final String arenaName;
+    private final SpawnSource finder;
+    private final ChunkTicketManager tickets;
+    private final ChunkPrewarmer prewarmer;
+    private final SwapExecutor swapExecutor;
+    private final RoundJournal journal;
+    private final SwapTopology swapTopology;
+    private final SwapHud hud;
+    private final JoinQueue joinQueue;
+
+    // Reused across swaps so a swap does not allocate arrays sized to the player count.
+    private Player[] swapOrder = new Player[0];
+    private Location[] swapLocations = new Location[0];
+    private final int prewarmSeconds;
+    // Seconds before a swap at which contestants are warned, with the message for each, built once.
+    private final int[] warningSeconds;
+    private final Component[] warningMessages;
+    private RoundState state = RoundState.IDLE;
+    // The round start in progress while PREPARING, otherwise null.
+    private Preparation preparation;
+    private final long prepareTimeoutTicks;
+    // Contestants and spectators by UUID. Only touched on the global region thread.
+    private final RoundRegistry registry = new RoundRegistry();
+    // Drives every timed round event (swaps, pre-swap warnings, HUD, joins, end-of-round checks) from one global region task.
+    private final RoundClock clock;
+    // Incremented per round, so callbacks that outlive their round can tell.
+    private int roundNumber;
+    private RoundClock.Handle endOfRoundCheck;
+    private static final int MAX_TIME_BETWEEN_SWAPS = 120;
+    // A burst of eliminations lists this many players by name and counts the rest.
+    private static final int MAX_LISTED_ELIMINATIONS = 10;
+
+    // Built once; an elimination only adds the player names.
+    private static final Component ELIMINATED = Component.text(" has been eliminated.");
+    private static final Component ELIMINATED_AFTER_SWAP = Component.text(" has been eliminated after swapping to ");
+    private static final Component LOCATION_SUFFIX = Component.text("'s location.");
+
+    // Deaths reported since the last clock tick, processed together by processEliminations.
+    private final List<PendingElimination> pendingEliminations = new ArrayList<>();
+    private RoundClock.Handle eliminationBatch;
 
     // This map will store who swapped with whom.
     // Key: The player who was teleported (the one who might die).
     // Value: The player whose location they were sent to.
-    private final Map<Player, Player> swapDestinations = new HashMap<>();
+    private final Map<UUID, UUID> swapDestinations = new HashMap<>();
 
     // --- Timer Fields ---
-    private BukkitTask timerTask;
+    private RoundClock.Handle timerTask;
     private long lastSwapTime;
     private int secondsUntilNextSwap;
 
 
-    public SwapManager(DeathSwap plugin, SafeLocationFinder locationFinder) {
+    public SwapManager(Plugin plugin, Scheduling scheduling, SwapMetrics metrics, String arenaName,
+                       SpawnSource locationFinder, ChunkTicketManager tickets) {
         this.SwapPlugin = plugin;
+        this.scheduling = scheduling;
+        this.metrics = metrics;
+        this.arenaName = arenaName;
         this.finder = locationFinder;
+        this.tickets = tickets;
+        this.clock = new RoundClock(plugin, scheduling);
+        this.clock.start();
+        this.prewarmSeconds = plugin.getConfig().getInt("swap.prewarm-seconds", 5);
+        this.warningSeconds = plugin.getConfig().getIntegerList("swap.warning-seconds").stream()
+                .mapToInt(Integer::intValue).filter(seconds -> seconds > 0).distinct().toArray();
+        this.warningMessages = new Component[warningSeconds.length];
+        for (int i = 0; i < warningSeconds.length; i++) {
+            warningMessages[i] = MiniMessage.miniMessage().deserialize(String.format(
+                    "<yellow>Swapping in <white>%d</white> second%s!</yellow>", warningSeconds[i], warningSeconds[i] == 1 ? "" : "s"));
+        }
+        this.prepareTimeoutTicks = Math.max(1, plugin.getConfig().getInt("swap.prepare-timeout-seconds", 60)) * 20L;
+        this.prewarmer = new ChunkPrewarmer(clock, scheduling, tickets, plugin.getConfig().getInt("swap.prewarm-radius", 1));
+        this.journal = new RoundJournal(plugin, arenaName, plugin.getConfig().getBoolean("journal.enabled", true),
+                plugin.getConfig().getInt("journal.buffer-events", 16384));
+        this.journal.start();
+        this.swapExecutor = new SwapExecutor(clock, scheduling, metrics, journal,
+                plugin.getConfig().getInt("swap.max-teleports-per-tick", 20),
+                plugin.getConfig().getLong("swap.teleport-budget-ms", 10) * 1_000_000L);
+        this.swapTopology = new SwapTopology(
+                SwapTopology.Mode.fromConfig(plugin.getConfig().getString("swap.topology", "single-cycle")),
+                plugin.getConfig().getInt("swap.cycle-length", 3));
+        this.hud = new SwapHud(SwapHud.Mode.fromConfig(plugin.getConfig().getString("hud.mode", "action-bar")),
+                MAX_TIME_BETWEEN_SWAPS);
+        this.joinQueue = new JoinQueue(clock, 5L, plugin.getConfig().getInt("joins.max-per-tick", 20), player -> {
+            UUID id = player.getUniqueId();
+            if (!registry.isContestant(id) && !registry.isSpectator(id)) {
+                addSpectator(player);
+            }
+        });
     }
 
-    private Player[] createDerangedPlayerArray(Player[] playerList) {
-        Random random = new Random();
-        Player[] shuffled = playerList.clone();
-        if (playerList.length < 2) return shuffled; // No derangement possible with < 2 players
+    /**
+     * Stops the round clock. Called when the plugin is disabled.
+     */
+    public void shutdown() {
+        clearAllScheduledSwaps();
+        joinQueue.stop();
+        clock.stop();
+        journal.close();
+    }
 
-        do {
-            for (int i = shuffled.length - 1; i > 0; i--) {
-                int j = random.nextInt(i + 1);
-                Player temp = shuffled[i];
-                shuffled[i] = shuffled[j];
-                shuffled[j] = temp;
-            }
-        } while (!isValidDerangement(playerList, shuffled));
-        return shuffled;
+    public boolean isRoundInProgress() {
+        return state != RoundState.IDLE;
     }
 
-    private boolean isValidDerangement(Player[] original, Player[] shuffled) {
-        for (int i = 0; i < original.length; i++) {
-            if (original[i].equals(shuffled[i])) {
-                return false;
-            }
-        }
-        return true;
+    public RoundState getState() {
+        return state;
     }
 
-    @EventHandler(priority = EventPriority.HIGH)
-    public void onPlayerJoin(org.bukkit.event.player.PlayerJoinEvent event) {
-        bukkitTasks.add(new BukkitRunnable() {
-            @Override
-            public void run() {
-                Player player = event.getPlayer();
-                if (!contestants.contains(player) && !spectators.contains(player)) {
-                    addSpectator(player);
-                }
-            }
-        }.runTaskLater(SwapPlugin, 5L));
+    public boolean isContestant(UUID id) {
+        return registry.isContestant(id);
     }
 
-    private void removeContestant(Player player) {
-        contestants.remove(player);
-        swapDestinations.remove(player); // Clean up the map when a player is removed
-        if (roundInProgress && contestants.size() <= 1) {
-            endRound();
-        }
+    /**
+     * Called by the {@link ArenaManager}, on the global region thread, for players that join into this arena.
+     * They are queued and become spectators a few ticks later, a limited number per tick.
+     */
+    public void handleJoin(Player player) {
+        joinQueue.offer(player);
     }
 
-    private void removeSpectator(Player player) {
-        spectators.remove(player);
+    /**
+     * Called by the {@link ArenaManager}, on the global region thread, when the player now belongs to another
+     * arena: their spectator or offline entry and any pending admission are dropped. Contestants are kept.
+     */
+    public void handleLeaveArena(UUID id) {
+        joinQueue.remove(id);
+        registry.forget(id);
     }
 
-    private void addSpectator(Player player) {
-        player.getInventory().clear();
-        spectators.add(player);
-        player.setGameMode(GameMode.SPECTATOR);
-        if (roundInProgress) {
-            player.sendMessage("You are now spectating the round!");
+    public String getJoinReport() {
+        return joinQueue.getReport();
+    }
+
+    private void removeContestant(Player player) {
+        if (!registry.removeContestant(player.getUniqueId())) {
+            return;
+        }
+        hud.removeViewer(player);
+        swapDestinations.remove(player.getUniqueId()); // Clean up the map when a player is removed
+        // While preparing, contestants are still being placed; the preparation decides if enough made it.
+        if (state == RoundState.RUNNING && registry.getContestantCount() <= 1) {
+            scheduleEndOfRoundCheck();
         }
     }
 
-    private void addContestant(Player player) {
-        Location safeLocation = finder.getNextSafeLocation();
-        // Load the chunk asynchronously before teleporting
-        safeLocation.getWorld().getChunkAtAsync(safeLocation).thenRun(() -> {
-            player.teleportAsync(safeLocation).thenRun(() -> {
-                player.sendMessage("This is your starting location");
-                player.setGameMode(GameMode.SURVIVAL);
-                player.getInventory().clear();
-                player.setHealth(20);
-                player.setFoodLevel(20);
-                player.setSaturation(5);
-                contestants.add(player);
-            });
+    /**
+     * Ends the round on the next clock tick if at most one contestant is left. Deferred so that the
+     * event which removed the contestant finishes first, and so that several removals in the same
+     * tick only end the round once.
+     */
+    private void scheduleEndOfRoundCheck() {
+        if (endOfRoundCheck != null && !endOfRoundCheck.isCancelled()) {
+            return;
+        }
+        endOfRoundCheck = clock.schedule(1L, () -> {
+            endOfRoundCheck = null;
+            if (state == RoundState.RUNNING && registry.getContestantCount() <= 1) {
+                endRound();
+            }
         });
     }
 
+    private void addSpectator(Player player) {
+        registry.addSpectator(player);
+        boolean spectatingRound = isRoundInProgress();
+        scheduling.runForEntity(player, () -> {
+            player.getInventory().clear();
+            player.setGameMode(GameMode.SPECTATOR);
+            if (spectatingRound) {
+                player.sendMessage("You are now spectating the round!");
+            }
+        });
+    }
 
+    // Player events fire on the player's region thread on Folia, so they are handed to the global region thread.
     @EventHandler
     public void onPlayerQuit(org.bukkit.event.player.PlayerQuitEvent event) {
-        removeContestant(event.getPlayer());
-        removeSpectator(event.getPlayer());
+        handleQuit(event.getPlayer());
+    }
+
+    void handleQuit(Player player) {
+        scheduling.runGlobal(() -> {
+            joinQueue.remove(player.getUniqueId());
+            removeContestant(player);
+            // Drops the Player reference; only the UUID and name are kept for the rest of the round.
+            registry.markOffline(player.getUniqueId());
+        });
     }
 
     @EventHandler(priority = EventPriority.HIGH)
     public void onPlayerDeath(org.bukkit.event.entity.PlayerDeathEvent event) {
-        Player eliminatedPlayer = event.getEntity();
-        if (contestants.contains(eliminatedPlayer)) {
+        handleDeath(event.getEntity());
+    }
+
+    /**
+     * Called on the thread that owns the player, as the death event is.
+     */
+    void handleDeath(Player eliminatedPlayer) {
+        // The damage cause is read here, on the thread that owns the player.
+        org.bukkit.event.entity.EntityDamageEvent lastDamage = eliminatedPlayer.getLastDamageCause();
+        int cause = lastDamage != null ? lastDamage.getCause().ordinal() : -1;
+        scheduling.runGlobal(() -> queueElimination(eliminatedPlayer, cause));
+    }
+
+    /**
+     * Only records the death. Everybody who died in the same tick, e.g. after a swap into lava, is
+     * processed on the next clock tick in one batch.
+     */
+    private void queueElimination(Player eliminatedPlayer, int cause) {
+        if (!registry.isContestant(eliminatedPlayer.getUniqueId())) return;
+        pendingEliminations.add(new PendingElimination(eliminatedPlayer, cause));
+        if (eliminationBatch == null || eliminationBatch.isCancelled()) {
+            eliminationBatch = clock.schedule(1L, this::processEliminations);
+        }
+    }
+
+    /**
+     * Eliminates the queued players in the order they died, sends one combined message, and ends the
+     * round right away if at most one contestant is left.
+     */
+    private void processEliminations() {
+        eliminationBatch = null;
+        long tick = clock.getCurrentTick();
+        List<Component> lines = new ArrayList<>(Math.min(pendingEliminations.size(), MAX_LISTED_ELIMINATIONS));
+        List<Player> eliminated = new ArrayList<>(pendingEliminations.size());
+        for (PendingElimination death : pendingEliminations) {
+            Player player = death.player();
+            UUID id = player.getUniqueId();
+            if (!registry.isContestant(id)) continue; // Died twice, or left before the batch ran.
             // Find who owned the location where the player died
-            Player locationOwner = swapDestinations.get(eliminatedPlayer);
-
-            if (locationOwner != null) {
-                String message = String.format(
-                        "<red>%s</red> has been eliminated after swapping to <aqua>%s</aqua>'s location. <gray>(%d contestants remain)</gray>",
-                        eliminatedPlayer.getName(),
-                        locationOwner.getName(),
-                        contestants.size() - 1 // Subtract 1 because the player is about to be removed
-                );
-                Bukkit.broadcast(MiniMessage.miniMessage().deserialize(message));
-                // TODO: Reward locationOwner with a totem of undying
-            } else {
-                // Fallback message if for some reason the swap data isn't available
-                String fallbackMessage = String.format(
-                        "<red>%s</red> has been eliminated. <gray>(%d contestants remain)</gray>",
-                        eliminatedPlayer.getName(),
-                        contestants.size() - 1
-                );
-                Bukkit.broadcast(MiniMessage.miniMessage().deserialize(fallbackMessage));
+            UUID locationOwner = swapDestinations.get(id);
+            journal.elimination(tick, roundNumber, id, locationOwner, death.cause());
+            if (lines.size() < MAX_LISTED_ELIMINATIONS) {
+                lines.add(eliminationLine(player.getName(), locationOwner != null ? registry.getName(locationOwner) : null));
             }
+            // TODO: Reward locationOwner with a totem of undying
+            removeContestant(player);
+            eliminated.add(player);
+        }
+        pendingEliminations.clear();
+        if (eliminated.isEmpty()) return;
+
+        if (eliminated.size() > lines.size()) {
+            lines.add(Component.text("...and " + (eliminated.size() - lines.size()) + " more players have been eliminated."));
+        }
+        announce(Component.join(JoinConfiguration.newlines(), lines)
+                .append(Component.text(" (" + registry.getContestantCount() + " contestants remain)", NamedTextColor.GRAY)));
+        eliminated.forEach(this::addSpectator);
 
-            removeContestant(eliminatedPlayer);
-            addSpectator(eliminatedPlayer);
+        if (state == RoundState.RUNNING && registry.getContestantCount() <= 1) {
+            endRound();
         }
     }
 
-    public void clearAllScheduledSwaps() {
-        if (!bukkitTasks.isEmpty()) {
-            bukkitTasks.forEach(BukkitTask::cancel);
-            bukkitTasks.clear();
+    private static Component eliminationLine(String victim, String locationOwner) {
+        // Siblings rather than children of the name, so only the names are coloured.
+        Component name = Component.text(victim, NamedTextColor.RED);
+        if (locationOwner == null) {
+            // Fallback message if for some reason the swap data isn't available
+            return Component.textOfChildren(name, ELIMINATED);
         }
+        return Component.textOfChildren(name, ELIMINATED_AFTER_SWAP, Component.text(locationOwner, NamedTextColor.AQUA), LOCATION_SUFFIX);
+    }
+
+    public void clearAllScheduledSwaps() {
+        // Drops every round-scoped event on the clock in O(1).
+        clock.cancelRound();
+        endOfRoundCheck = null;
+        eliminationBatch = null;
+        pendingEliminations.clear();
+        cancelPreparation();
+        swapExecutor.cancel();
+        // Nothing reads the swap buffers once the executor is stopped.
+        Arrays.fill(swapOrder, null);
+        Arrays.fill(swapLocations, null);
         stopTimer(); // Centralized cleanup
+        prewarmer.stop();
     }
 
     public void endRound() {
+        boolean wasInProgress = isRoundInProgress();
         clearAllScheduledSwaps();
-        roundInProgress = false;
+        state = RoundState.IDLE;
         swapDestinations.clear(); // Clear the map at the end of the round
 
-        if (contestants.size() == 1) {
-            Player winner = contestants.getFirst();
-            Bukkit.broadcast(MiniMessage.miniMessage().deserialize(String.format("<gold>%s won the round!</gold>", winner.getName())));
+        int remaining = registry.getContestantCount();
+        if (wasInProgress) journal.roundEnd(clock.getCurrentTick(), roundNumber, remaining == 1 ? registry.getContestant(0).getId() : null, remaining);
+        if (remaining == 1) {
+            RoundRegistry.Participant winner = registry.getContestant(0);
+            announce(MiniMessage.miniMessage().deserialize(String.format("<gold>%s won the round!</gold>", winner.getName())));
         } else {
-            Bukkit.broadcast(MiniMessage.miniMessage().deserialize("<green>The round has ended in a tie!</green>"));
+            announce(MiniMessage.miniMessage().deserialize("<green>The round has ended in a tie!</green>"));
         }
 
         // Move all remaining contestants to spectators
-        new ArrayList<>(contestants).forEach(p -> {
+        new ArrayList<>(registry.getContestantPlayers()).forEach(p -> {
             removeContestant(p);
             addSpectator(p);
         });
     }
 
     private void swapPlayers() {
-        if (!roundInProgress || contestants.size() < 2) {
+        if (state != RoundState.RUNNING || registry.getContestantCount() < 2) {
+            prewarmer.stop();
             return;
         }
 
-        Player[] oldPlayerOrder = contestants.toArray(new Player[0]);
-        Player[] newPlayerOrder = createDerangedPlayerArray(oldPlayerOrder);
-        Location[] originalPlayerLocations = Arrays.stream(oldPlayerOrder).map(Player::getLocation).toArray(Location[]::new);
-
-        swapDestinations.clear(); // Clear old swap data before creating new assignments
-
-        List<CompletableFuture<Boolean>> teleportFutures = new ArrayList<>();
-
-        for (int i = 0; i < oldPlayerOrder.length; i++) {
-            Player playerToTeleport = newPlayerOrder[i];
-            Player originalOwnerOfLocation = oldPlayerOrder[i];
-            Location targetLocation = originalPlayerLocations[i];
+        long swapStart = System.nanoTime();
+        int swapRound = roundNumber;
+        int count = registry.getContestantCount();
+        if (swapOrder.length < count) {
+            swapOrder = new Player[count * 2];
+            swapLocations = new Location[count * 2];
+        }
+        // The registry index of each contestant is their index in this swap. Each position is read by the
+        // region that owns the player, so on Folia the reads run in parallel across region threads.
+        JfrEvents.Swap event = new JfrEvents.Swap();
+        event.begin();
+        CompletableFuture<?>[] positions = new CompletableFuture[count];
+        for (int i = 0; i < count; i++) {
+            Player player = registry.getContestant(i).getPlayer();
+            Location[] locations = swapLocations;
+            int slot = i;
+            swapOrder[i] = player;
+            positions[i] = scheduling.callForEntity(player, player::getLocation).thenAccept(loc -> locations[slot] = loc);
+        }
+        CompletableFuture.allOf(positions).whenCompleteAsync((ignored, throwable) -> {
+            // The round ended while positions were read; clearAllScheduledSwaps already cleaned up after it.
+            if (!isSwapRound(swapRound)) return;
+            teleportPlayers(swapStart, swapRound, count, event);
+        }, scheduling.global());
+    }
 
-            swapDestinations.put(playerToTeleport, originalOwnerOfLocation);
+    private boolean isSwapRound(int swapRound) {
+        return state == RoundState.RUNNING && swapRound == roundNumber;
+    }
 
-            CompletableFuture<Boolean> future = targetLocation.getWorld().getChunkAtAsync(targetLocation)
-                    .thenCompose(chunk -> {
-                        playerToTeleport.sendMessage("swapping to " + originalOwnerOfLocation.getName() + "'s location");
-                        return playerToTeleport.teleportAsync(targetLocation);
-                    });
+    private void teleportPlayers(long swapStart, int swapRound, int count, JfrEvents.Swap event) {
+        long topologyStart = System.nanoTime();
+        // targets[i] is the index of the contestant whose location contestant i is sent to.
+        int[] targets = swapTopology.next(count);
+        long topologyNanos = System.nanoTime() - topologyStart;
+
+        long tick = clock.getCurrentTick();
+        journal.swap(tick, swapRound, count);
+        for (int i = 0; i < count; i++) {
+            if (swapLocations[targets[i]] != null) {
+                journal.swapEdge(tick, swapRound, swapOrder[i].getUniqueId(), swapOrder[targets[i]].getUniqueId());
+            }
+        }
 
-            teleportFutures.add(future);
+        // Every destination was captured above, before any teleport started. The teleports themselves are spread
+        // over several ticks; each player's entry in swapDestinations is only replaced once they arrive,
+        // so a player who dies before their turn is still attributed to the location they are really in.
+        int prewarmedDestinations = 0;
+        for (int i = 0; i < count; i++) {
+            Location targetLocation = swapLocations[i];
+            if (targetLocation != null
+                    && targetLocation.getWorld().isChunkLoaded(targetLocation.getBlockX() >> 4, targetLocation.getBlockZ() >> 4)) {
+                prewarmedDestinations++;
+            }
         }
 
-        CompletableFuture.allOf(teleportFutures.toArray(new CompletableFuture[0])).thenRun(() -> {
-            this.lastSwapTime = System.currentTimeMillis(); // Reset after swap
-            scheduleNextSwap();
+        long swapTickNanos = System.nanoTime() - swapStart;
+        int loadedDestinations = prewarmedDestinations;
+        // The swap buffers are only read while this swap's round is still running; a new round may reuse them.
+        swapExecutor.execute(swapOrder, swapLocations, targets, count, swapRound,
+                traveller -> isSwapRound(swapRound) && registry.isContestant(traveller.getUniqueId()), (traveller, owner) -> {
+                    if (isSwapRound(swapRound) && registry.isContestant(traveller.getUniqueId())) {
+                        swapDestinations.put(traveller.getUniqueId(), owner.getUniqueId());
+                    }
+                }
+        ).whenComplete((ignored, throwable) -> {
+            boolean current = isSwapRound(swapRound);
+            if (current) {
+                // Teleports are done (or failed), the pinned chunks are no longer needed.
+                prewarmer.stop();
+            }
+            metrics.recordSwap(System.nanoTime() - swapStart);
+            event.end();
+            if (event.shouldCommit()) {
+                event.arena = arenaName;
+                event.world = finder.getWorld().getName();
+                event.players = count;
+                event.topology = swapTopology.getMode().name();
+                event.captureNanos = topologyStart - swapStart;
+                event.topologyNanos = topologyNanos;
+                event.destinationsLoaded = loadedDestinations;
+                event.batchSize = swapExecutor.getBatchSize();
+                event.commit();
+            }
+            if (current) {
+                // Drop references to the players and locations of this swap.
+                Arrays.fill(swapOrder, 0, count, null);
+                Arrays.fill(swapLocations, 0, count, null);
+            }
+            SwapPlugin.getLogger().info(String.format("[" + arenaName + "] "
+                    + "Swapped %d players (%s): %.2f ms to capture positions, %.2f ms until the last teleport completed, %d/%d destinations were already loaded, batch size %d.",
+                    count, swapTopology.getMode(), swapTickNanos / 1_000_000.0, (System.nanoTime() - swapStart) / 1_000_000.0,
+                    loadedDestinations, count, swapExecutor.getBatchSize()));
+            if (throwable != null) {
+                SwapPlugin.getLogger().warning("Some teleports failed during the swap: " + throwable.getMessage());
+            }
+            if (current) {
+                this.lastSwapTime = System.currentTimeMillis(); // Reset after swap
+                scheduleNextSwap();
+            }
         });
     }
 
 
-    public void startRound() {
-        if (Bukkit.getOnlinePlayers().size() < 2) {
-            Bukkit.broadcast(MiniMessage.miniMessage().deserialize("<red>Not enough players to start a round! At least 2 are required.</red>"));
-            return;
+    /**
+     * Starts a round in this arena with the given players as contestants. The round first enters
+     * {@link RoundState#PREPARING}, which runs without blocking:
+     * <ol>
+     *     <li>reserve one spawn per player from the location pool,</li>
+     *     <li>pin and load every spawn chunk,</li>
+     *     <li>teleport the players in batches,</li>
+     *     <li>reset each player once they arrive,</li>
+     *     <li>arm the swap clock once every teleport has completed.</li>
+     * </ol>
+     * Progress is shown to everybody involved. If preparation does not finish within the timeout the
+     * round goes ahead with whoever has been placed, or is called off if that is fewer than two.
+     * @return false if there were not enough players.
+     */
+    public boolean startRound(Collection<? extends Player> candidates) {
+        if (candidates.size() < 2) {
+            Audience.audience(candidates).sendMessage(MiniMessage.miniMessage().deserialize("<red>Not enough players to start a round! At least 2 are required.</red>"));
+            return false;
         }
 
+        JfrEvents.RoundStart event = new JfrEvents.RoundStart();
+        event.begin();
         clearAllScheduledSwaps(); // Clear any old tasks
-        roundInProgress = true;
-        Bukkit.broadcast(MiniMessage.miniMessage().deserialize("<green>The round is starting now!</green>"));
-        contestants.clear();
-        spectators.clear();
+        state = RoundState.PREPARING;
+        ++roundNumber;
+        journal.roundStart(clock.getCurrentTick(), roundNumber, candidates.size());
+        registry.clear();
         swapDestinations.clear();
 
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            addContestant(player);
+        // Everybody is tracked right away, so announcements reach them while spawns are prepared.
+        List<Player> players = new ArrayList<>(candidates);
+        players.forEach(registry::addSpectator);
+        announce(MiniMessage.miniMessage().deserialize("<green>The round is starting now!</green>"));
+
+        Preparation prep = new Preparation(players, event);
+        preparation = prep;
+        prep.progressTask = clock.scheduleRepeating(1L, 20L, () -> showProgress(prep));
+        prep.timeoutTask = clock.schedule(prepareTimeoutTicks, () -> finishPreparation(prep, true));
+
+        // 1. Reserve spawns. Completes on the global region thread; there is no synchronous fallback.
+        prep.spawns = finder.reserve(players.size());
+        prep.spawnsReadyImmediately = prep.spawns.isDone();
+        prep.spawns.thenAccept(locations -> {
+            if (prep == preparation) {
+                loadSpawnChunks(prep, locations);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 2. Pins every spawn chunk with a ticket for the rest of the preparation and loads it.
+     */
+    private void loadSpawnChunks(Preparation prep, List<Location> locations) {
+        prep.locations = locations.toArray(new Location[0]);
+        prep.pinned = new boolean[prep.locations.length];
+        prep.chunkLoadNanos = new long[prep.locations.length];
+        CompletableFuture<?>[] loads = new CompletableFuture[prep.locations.length];
+        for (int i = 0; i < prep.locations.length; i++) {
+            Location spawn = prep.locations[i];
+            int chunkX = spawn.getBlockX() >> 4;
+            int chunkZ = spawn.getBlockZ() >> 4;
+            prep.pinned[i] = tickets.acquire(chunkX, chunkZ);
+            long requested = System.nanoTime();
+            int slot = i;
+            loads[i] = spawn.getWorld().getChunkAtAsync(chunkX, chunkZ).thenRun(() -> {
+                prep.chunkLoadNanos[slot] = System.nanoTime() - requested;
+                metrics.recordChunkLoad(prep.chunkLoadNanos[slot]);
+                prep.chunksLoaded.incrementAndGet();
+            });
         }
+        CompletableFuture.allOf(loads).whenCompleteAsync((ignored, throwable) -> {
+            if (prep != preparation) return;
+            if (throwable != null) {
+                SwapPlugin.getLogger().warning("[" + arenaName + "] Some spawn chunks failed to load: " + throwable.getMessage());
+            }
+            teleportContestants(prep);
+        }, scheduling.global());
+    }
 
-        // Initial delay before the first swap
-        bukkitTasks.add(new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        if (roundInProgress) {
-                            lastSwapTime = System.currentTimeMillis();
-                            startTimer(); // Start the timer
-                            scheduleNextSwap(); // Schedule the first swap
+    /**
+     * 3. and 4. Teleports everybody to their spawn in batches and registers each player as a contestant
+     * as soon as they arrive. Their state is reset by the region that owns them.
+     */
+    private void teleportContestants(Preparation prep) {
+        Player[] players = prep.players.toArray(new Player[0]);
+        int[] ownSpawn = new int[players.length];
+        // One JFR event per player, from the start of the placement until they arrive.
+        JfrEvents.AddContestant[] placements = new JfrEvents.AddContestant[players.length];
+        Map<Player, Integer> indexOf = new IdentityHashMap<>(players.length * 2);
+        for (int i = 0; i < ownSpawn.length; i++) {
+            ownSpawn[i] = i;
+            placements[i] = new JfrEvents.AddContestant();
+            placements[i].begin();
+            indexOf.put(players[i], i);
+        }
+        prep.placement = swapExecutor.execute(players, prep.locations, ownSpawn, players.length, roundNumber,
+                player -> prep == preparation, (player, ignored) -> {
+                    if (prep != preparation) {
+                        // Its teleport was already in flight when the preparation ended. A candidate still waiting
+                        // in this arena watches instead of standing at a spawn in their old game mode.
+                        if (registry.isSpectator(player.getUniqueId())) {
+                            addSpectator(player);
                         }
+                        return;
+                    }
+                    registry.addContestant(player);
+                    journal.participant(clock.getCurrentTick(), roundNumber, player.getUniqueId(), player.getName());
+                    int index = indexOf.get(player);
+                    JfrEvents.AddContestant event = placements[index];
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.arena = arenaName;
+                        event.world = finder.getWorld().getName();
+                        event.player = player.getName();
+                        event.chunkLoadNanos = prep.chunkLoadNanos[index];
+                        event.commit();
                     }
-                }.runTaskLater(SwapPlugin, 60L) // 3-second delay before anything happens
+                    scheduling.runForEntity(player, () -> {
+                        player.sendMessage("This is your starting location");
+                        player.setGameMode(GameMode.SURVIVAL);
+                        player.getInventory().clear();
+                        player.setHealth(20);
+                        player.setFoodLevel(20);
+                        player.setSaturation(5);
+                    });
+                }
         );
+        prep.placement.whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                SwapPlugin.getLogger().warning("[" + arenaName + "] Some spawn teleports failed: " + throwable.getMessage());
+            }
+            finishPreparation(prep, false);
+        });
+    }
+
+    /**
+     * 5. Arms the swap clock, or calls the round off if fewer than two players could be placed.
+     * Candidates that were not placed in time are made spectators either way.
+     */
+    private void finishPreparation(Preparation prep, boolean timedOut) {
+        if (prep != preparation) return;
+        cancelPreparation();
+        int placed = registry.getContestantCount();
+        SwapPlugin.getLogger().info(String.format("[%s] Round preparation %s: %d/%d players placed.",
+                arenaName, timedOut ? "timed out" : "finished", placed, prep.players.size()));
+
+        prep.event.end();
+        if (prep.event.shouldCommit()) {
+            prep.event.arena = arenaName;
+            prep.event.world = finder.getWorld().getName();
+            prep.event.players = placed;
+            prep.event.spawnsReady = prep.spawnsReadyImmediately;
+            prep.event.commit();
+        }
+
+        if (placed < 2) {
+            announce(MiniMessage.miniMessage().deserialize(timedOut
+                    ? "<red>Preparing the round took too long, it has been called off.</red>"
+                    : "<red>Not enough players could be placed, the round has been called off.</red>"));
+            clearAllScheduledSwaps();
+            state = RoundState.IDLE;
+            journal.roundEnd(clock.getCurrentTick(), roundNumber, null, placed);
+            new ArrayList<>(registry.getContestantPlayers()).forEach(p -> {
+                removeContestant(p);
+                addSpectator(p);
+            });
+            spectateUnplaced(prep);
+            return;
+        }
+        if (timedOut) {
+            announce(MiniMessage.miniMessage().deserialize(String.format(
+                    "<yellow>Preparing the round took too long, starting with the %d players that are ready.</yellow>", placed)));
+        }
+
+        state = RoundState.RUNNING;
+        spectateUnplaced(prep);
+        announce(MiniMessage.miniMessage().deserialize("<green>All players are in place. Good luck!</green>"));
+        lastSwapTime = System.currentTimeMillis();
+        startTimer(); // Start the timer
+        scheduleNextSwap(); // Schedule the first swap
+    }
+
+    /**
+     * Candidates are only tracked as spectators while they wait to be placed; those still waiting, online
+     * and in this arena get the spectator game mode and an empty inventory now.
+     */
+    private void spectateUnplaced(Preparation prep) {
+        for (Player player : prep.players) {
+            if (player.isOnline() && registry.isSpectator(player.getUniqueId())) {
+                addSpectator(player);
+            }
+        }
+    }
+
+    /**
+     * Stops a preparation that is still running: its progress and timeout events, the spawn
+     * reservation, the placement teleports not issued yet and the spawn chunk tickets. Teleports already
+     * in flight still land; their players are made spectators on arrival.
+     */
+    private void cancelPreparation() {
+        Preparation prep = preparation;
+        if (prep == null) return;
+        preparation = null;
+        prep.progressTask.cancel();
+        prep.timeoutTask.cancel();
+        if (prep.spawns != null) {
+            prep.spawns.cancel(false);
+        }
+        if (prep.placement != null) {
+            swapExecutor.cancel(prep.placement);
+        }
+        if (prep.pinned != null) {
+            for (int i = 0; i < prep.locations.length; i++) {
+                if (prep.pinned[i]) {
+                    tickets.release(prep.locations[i].getBlockX() >> 4, prep.locations[i].getBlockZ() >> 4);
+                }
+            }
+            prep.pinned = null;
+        }
+        if (prep.progressShown) {
+            Audience.audience(registry.getOnlinePlayers()).sendActionBar(Component.empty());
+        }
+    }
+
+    private void showProgress(Preparation prep) {
+        if (prep != preparation) return;
+        int total = prep.players.size();
+        int spawns = prep.locations != null ? total : 0;
+        String progress = String.format(
+                "<gray>Preparing round: spawns <white>%d/%d</white> | chunks <white>%d/%d</white> | placed <white>%d/%d</white>",
+                spawns, total, prep.chunksLoaded.get(), total, registry.getContestantCount(), total);
+        Audience.audience(registry.getOnlinePlayers()).sendActionBar(MiniMessage.miniMessage().deserialize(progress));
+        prep.progressShown = true;
+    }
+
+    /**
+     * Sends a message to everybody taking part in this arena's round.
+     */
+    private void announce(Component message) {
+        Audience.audience(registry.getOnlinePlayers()).sendMessage(message);
     }
 
     private void scheduleNextSwap() {
         this.secondsUntilNextSwap = getRandomSwapTimeWeighted();
         int ticksBeforeNextSwap = this.secondsUntilNextSwap * 20;
-        Bukkit.getLogger().info("Next swap scheduled in " + secondsUntilNextSwap + " seconds.");
+        SwapPlugin.getLogger().info("[" + arenaName + "] Next swap scheduled in " + secondsUntilNextSwap + " seconds.");
+
+        // Pin the chunks around every contestant a few seconds ahead, so the swap does not wait on chunk loads.
+        if (prewarmSeconds > 0) {
+            int ticksBeforePrewarm = Math.max(1, ticksBeforeNextSwap - prewarmSeconds * 20);
+            clock.schedule(ticksBeforePrewarm, () -> {
+                if (state == RoundState.RUNNING) {
+                    prewarmer.start(registry::getContestantPlayers);
+                }
+            });
+        }
 
-        BukkitTask swapTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                swapPlayers();
-            }
-        }.runTaskLater(SwapPlugin, ticksBeforeNextSwap);
-        bukkitTasks.add(swapTask);
+        // Round-scoped like the swap itself, so ending the round drops any warning still due.
+        for (int i = 0; i < warningSeconds.length; i++) {
+            if (warningSeconds[i] >= secondsUntilNextSwap) continue;
+            Component warning = warningMessages[i];
+            clock.schedule(ticksBeforeNextSwap - warningSeconds[i] * 20L, () -> {
+                if (state == RoundState.RUNNING) {
+                    announce(warning);
+                }
+            });
+        }
+
+        clock.schedule(ticksBeforeNextSwap, this::swapPlayers);
     }
 
     private void stopTimer() {
         if (timerTask != null) {
             timerTask.cancel();
-            bukkitTasks.remove(timerTask);
             timerTask = null;
         }
+        hud.hide();
     }
 
     private void startTimer() {
         stopTimer(); // Ensure no other timer is running
 
-        timerTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!roundInProgress) {
-                    this.cancel(); // Stop if the round has ended
-                    return;
-                }
-
-                long elapsedMillis = System.currentTimeMillis() - lastSwapTime;
-                long elapsedSeconds = elapsedMillis / 1000;
-
-                // Prevent division by zero if the next swap time isn't set yet
-                if (MAX_TIME_BETWEEN_SWAPS <= 0) return;
-
-                // Determine the color and hazard level based on how close the next swap is.
-                double dangerRatio = (double) elapsedSeconds / MAX_TIME_BETWEEN_SWAPS;
-                String color;
-                String hazardLevel;
-                if (dangerRatio > 0.8) {
-                    color = "<red>";
-                    hazardLevel = "DANGER";
-                } else if (dangerRatio > 0.5) {
-                    color = "<yellow>";
-                    hazardLevel = "UNSAFE";
-                } else {
-                    color = "<green>";
-                    hazardLevel = "SAFE";
-                }
-
-                // Format the message to include the timer and the hazard level
-                String timerMessage = String.format("%s%s | Time: %02d:%02d",
-                        color, hazardLevel, elapsedSeconds / 60, elapsedSeconds % 60);
-
-                // Send the formatted timer to all contestants.
-                for (Player player : contestants) {
-                    player.sendActionBar(MiniMessage.miniMessage().deserialize(timerMessage));
-                }
+        hud.setViewers(registry.getContestantPlayers());
+        timerTask = clock.scheduleRepeating(1L, 20L, () -> { // Run every second
+            long elapsedMillis = System.currentTimeMillis() - lastSwapTime;
+            long elapsedSeconds = elapsedMillis / 1000;
+
+            // Prevent division by zero if the next swap time isn't set yet
+            if (MAX_TIME_BETWEEN_SWAPS <= 0) return;
+
+            // One cached frame, sent once to the audience of all contestants.
+            JfrEvents.HudRender event = new JfrEvents.HudRender();
+            event.begin();
+            hud.render(elapsedSeconds);
+            event.end();
+            if (event.shouldCommit()) {
+                event.arena = arenaName;
+                event.elapsedSeconds = elapsedSeconds;
+                event.commit();
             }
-        }.runTaskTimer(SwapPlugin, 0L, 20L); // Run every second
-
-        bukkitTasks.add(timerTask);
+        });
     }
 
-    private int getRandomSwapTimeWeighted() {
-        Random random = new Random();
+    static int getRandomSwapTimeWeighted() {
         float SWAP_PROBABILITY_WEIGHT = 2;
-        return (int) Math.round(Math.pow(random.nextDouble(), 1.0 / SWAP_PROBABILITY_WEIGHT) * (MAX_TIME_BETWEEN_SWAPS - 1)) + 1;
+        return (int) Math.round(Math.pow(ThreadLocalRandom.current().nextDouble(), 1.0 / SWAP_PROBABILITY_WEIGHT) * (MAX_TIME_BETWEEN_SWAPS - 1)) + 1;
+    }
+
+    private record PendingElimination(Player player, int cause) {
+    }
+
+    /**
+     * State of one round start while the round is {@link RoundState#PREPARING}.
+     */
+    private static final class Preparation {
+        private final List<Player> players;
+        private final JfrEvents.RoundStart event;
+        private final AtomicInteger chunksLoaded = new AtomicInteger();
+        private CompletableFuture<List<Location>> spawns;
+        private boolean spawnsReadyImmediately;
+        // The executor run teleporting everybody to their spawn, once started.
+        private CompletableFuture<Void> placement;
+        private Location[] locations;
+        // Time each spawn chunk took to load, for the AddContestant events.
+        private long[] chunkLoadNanos;
+        // Which spawn chunks got a ticket; null once released.
+        private boolean[] pinned;
+        private boolean progressShown;
+        private RoundClock.Handle progressTask;
+        private RoundClock.Handle timeoutTask;
+
+        private Preparation(List<Player> players, JfrEvents.RoundStart event) {
+            this.players = players;
+            this.event = event;
+        }
     }
-}
\ No newline at end of file
+}
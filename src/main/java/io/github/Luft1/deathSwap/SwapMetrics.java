@@ -0,0 +1,149 @@
+package io.github.Luft1.deathSwap;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plugin-wide counters and latency histograms, shared by every arena.
+ * <p>
+ * Recording is a single {@link LongAdder} or histogram increment and safe from any thread, so the
+ * hot paths can report unconditionally. The numbers are shown by {@code /deathswap stats} and, if
+ * configured, written to {@code metrics.json} in the data folder at a fixed interval.
+ */
+public class SwapMetrics {
+
+    private final Plugin plugin;
+    private final File file;
+
+    // Trigger of a swap until its last teleport completed.
+    private final LatencyHistogram swapDuration = new LatencyHistogram();
+    // teleportAsync call until completion, per player.
+    private final LatencyHistogram teleportLatency = new LatencyHistogram();
+    // getChunkAtAsync call until the chunk is available, for spawns and location searches.
+    private final LatencyHistogram chunkLoadLatency = new LatencyHistogram();
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder columnsSampled = new LongAdder();
+    private final LongAdder acceptedLocations = new LongAdder();
+    private final LongAdder chunkTickets = new LongAdder();
+
+    private ScheduledTask snapshotTask;
+
+    public SwapMetrics(Plugin plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "metrics.json");
+    }
+
+    /**
+     * Starts writing a snapshot every {@code intervalSeconds}; 0 or less disables the file export.
+     */
+    public void startSnapshots(Scheduling scheduling, int intervalSeconds) {
+        if (intervalSeconds <= 0) return;
+        long ticks = intervalSeconds * 20L;
+        snapshotTask = scheduling.runAsyncTimer(this::writeSnapshot, ticks, ticks);
+    }
+
+    public void shutdown() {
+        if (snapshotTask != null) {
+            snapshotTask.cancel();
+            snapshotTask = null;
+            writeSnapshot();
+        }
+    }
+
+    public void recordSwap(long nanos) {
+        swapDuration.recordNanos(nanos);
+    }
+
+    public void recordTeleport(long nanos) {
+        teleportLatency.recordNanos(nanos);
+    }
+
+    public void recordChunkLoad(long nanos) {
+        chunkLoadLatency.recordNanos(nanos);
+    }
+
+    /**
+     * @param hits   locations served straight from a ready cache.
+     * @param misses locations that had to be waited for.
+     */
+    public void recordCacheLookup(int hits, int misses) {
+        cacheHits.add(hits);
+        cacheMisses.add(misses);
+    }
+
+    public void recordColumnsSampled(int columns) {
+        columnsSampled.add(columns);
+    }
+
+    public void recordAcceptedLocation() {
+        acceptedLocations.increment();
+    }
+
+    public void ticketAdded() {
+        chunkTickets.increment();
+    }
+
+    public void ticketsRemoved(int count) {
+        chunkTickets.add(-count);
+    }
+
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        long hits = cacheHits.sum();
+        long misses = cacheMisses.sum();
+        long accepted = acceptedLocations.sum();
+        lines.add("Swap duration: " + swapDuration.summary());
+        lines.add("Teleport latency: " + teleportLatency.summary());
+        lines.add("Chunk load latency: " + chunkLoadLatency.summary());
+        lines.add(String.format("Location cache: %d hits, %d misses (%.1f%% hit rate)",
+                hits, misses, hits + misses == 0 ? 100.0 : 100.0 * hits / (hits + misses)));
+        lines.add(String.format("Finder: %d locations accepted, %.1f columns sampled per accepted location",
+                accepted, accepted == 0 ? 0.0 : (double) columnsSampled.sum() / accepted));
+        lines.add("Chunk tickets held: " + chunkTickets.sum());
+        return lines;
+    }
+
+    private void writeSnapshot() {
+        long accepted = acceptedLocations.sum();
+        String json = "{\n"
+                + "  \"timestamp\": \"" + Instant.now() + "\",\n"
+                + "  \"swapDuration\": " + toJson(swapDuration) + ",\n"
+                + "  \"teleportLatency\": " + toJson(teleportLatency) + ",\n"
+                + "  \"chunkLoadLatency\": " + toJson(chunkLoadLatency) + ",\n"
+                + "  \"cacheHits\": " + cacheHits.sum() + ",\n"
+                + "  \"cacheMisses\": " + cacheMisses.sum() + ",\n"
+                + "  \"acceptedLocations\": " + accepted + ",\n"
+                + "  \"columnsSampled\": " + columnsSampled.sum() + ",\n"
+                + "  \"chunkTickets\": " + chunkTickets.sum() + "\n"
+                + "}\n";
+
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.writeString(tmp.toPath(), json, StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write metrics snapshot: " + e.getMessage());
+        }
+    }
+
+    private static String toJson(LatencyHistogram histogram) {
+        return String.format(Locale.ROOT, "{\"count\": %d, \"meanMicros\": %.1f, \"p50Micros\": %d, \"p90Micros\": %d, \"p99Micros\": %d, \"p999Micros\": %d, \"maxMicros\": %d}",
+                histogram.getCount(), histogram.getMeanMicros(), histogram.getPercentileMicros(50),
+                histogram.getPercentileMicros(90), histogram.getPercentileMicros(99),
+                histogram.getPercentileMicros(99.9), histogram.getMaxMicros());
+    }
+}
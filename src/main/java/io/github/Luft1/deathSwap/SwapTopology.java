@@ -0,0 +1,125 @@
+package io.github.Luft1.deathSwap;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Decides who is sent to whose location, working purely on contestant indices.
+ * <p>
+ * {@link #next(int)} fills {@code targets[i]} with the index of the contestant whose location
+ * contestant {@code i} is sent to. Every mode produces a derangement in a single pass (nobody is
+ * ever sent to their own spot), without rejection sampling. The index buffers are reused across
+ * swaps, so a swap allocates nothing here once the buffers have grown to the round's size.
+ * Not thread-safe; use from the thread that runs the swaps.
+ */
+public class SwapTopology {
+
+    public enum Mode {
+        /** Everybody forms one big cycle (Sattolo's algorithm). */
+        SINGLE_CYCLE,
+        /** Players swap in pairs; with an odd count one group of three rotates. */
+        PAIRWISE,
+        /** Players rotate in groups of {@code cycleLength}. */
+        K_CYCLE;
+
+        public static Mode fromConfig(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return SINGLE_CYCLE;
+            }
+        }
+    }
+
+    private final Mode mode;
+    private final int cycleLength;
+    private final SplittableRandom random = new SplittableRandom();
+
+    private int[] order = new int[0];
+    private int[] targets = new int[0];
+
+    public SwapTopology(Mode mode, int cycleLength) {
+        this.mode = mode;
+        this.cycleLength = Math.max(2, cycleLength);
+    }
+
+    /**
+     * Generates the next swap for {@code n} contestants.
+     *
+     * @return the shared targets buffer; only the first {@code n} entries are meaningful, and the
+     * contents are only valid until the next call.
+     */
+    public int[] next(int n) {
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        if (n < 2) {
+            // No derangement possible with < 2 players
+            if (n == 1) targets[0] = 0;
+            return targets;
+        }
+
+        switch (mode) {
+            case SINGLE_CYCLE -> sattolo(n);
+            case PAIRWISE -> cycles(n, 2);
+            case K_CYCLE -> cycles(n, cycleLength);
+        }
+        return targets;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Sattolo's variant of Fisher-Yates: picking {@code j < i} (never {@code j == i}) yields a uniformly
+     * random permutation that is a single cycle, so {@code order[i]} can be used as the target directly.
+     */
+    private void sattolo(int n) {
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        System.arraycopy(order, 0, targets, 0, n);
+    }
+
+    /**
+     * Shuffles the players and rotates each consecutive group of {@code k} among itself. A leftover
+     * group that is too small to rotate on its own (a single player) is merged into the previous group.
+     */
+    private void cycles(int n, int k) {
+        shuffle(n);
+        int start = 0;
+        while (start < n) {
+            int end = Math.min(start + k, n);
+            if (n - end < 2) {
+                end = n;
+            }
+            for (int p = start; p < end - 1; p++) {
+                targets[order[p]] = order[p + 1];
+            }
+            targets[order[end - 1]] = order[start];
+            start = end;
+        }
+    }
+
+    private void shuffle(int n) {
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (order.length < n) {
+            int capacity = Math.max(n, order.length * 2);
+            order = new int[capacity];
+            targets = new int[capacity];
+        }
+    }
+}
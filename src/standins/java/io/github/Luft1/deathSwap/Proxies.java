@@ -0,0 +1,31 @@
+package io.github.Luft1.deathSwap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+
+/**
+ * Dynamic proxies for the stand-ins of the benchmarks and the load simulation, so either runs without a server.
+ * <p>
+ * A stand-in implements the methods the plugin actually calls and hands everything else to
+ * {@link #objectMethod}, which answers {@code equals}, {@code hashCode} and {@code toString} and throws for
+ * the rest, so code that starts touching more of the API fails loudly instead of seeing a default value.
+ */
+final class Proxies {
+
+    private Proxies() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(Proxies.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    static Object objectMethod(Object proxy, String name, Object[] args) {
+        return switch (name) {
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "StandIn@" + Integer.toHexString(System.identityHashCode(proxy));
+            default -> throw new UnsupportedOperationException(name + " is not implemented by the stand-in");
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.Luft1.deathSwap;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMicros(99));
+        assertEquals(0.0, histogram.getMeanMicros(), 0.0);
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        for (long value = 0; value < 16; value++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(1_000_000);
+
+            assertEquals(value, histogram.getPercentileMicros(50));
+        }
+    }
+
+    @Test
+    void bucketBoundsAreWithinOneSixteenth() {
+        // The second, much larger value keeps the max from hiding the bucket's upper bound.
+        for (long value = 16; value < 100_000_000L; value = value * 3 / 2 + 1) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(1L << 38);
+
+            long reported = histogram.getPercentileMicros(50);
+            assertTrue(reported >= value && reported <= value + value / 16,
+                    value + " was reported as " + reported);
+        }
+    }
+
+    @Test
+    void percentilesOfAUniformRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMaxMicros());
+        assertEquals(500.5, histogram.getMeanMicros(), 1e-9);
+        assertWithin(500, histogram.getPercentileMicros(50));
+        assertWithin(900, histogram.getPercentileMicros(90));
+        assertWithin(990, histogram.getPercentileMicros(99));
+        // The top bucket is capped at the largest value actually recorded.
+        assertEquals(1000, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(1L << 50);
+
+        assertEquals(0, histogram.getPercentileMicros(50));
+        assertEquals(1L << 50, histogram.getMaxMicros());
+        assertTrue(histogram.getPercentileMicros(100) >= 1L << 40);
+    }
+
+    @Test
+    void recordsNanosAsMicros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(12_999);
+
+        assertEquals(12, histogram.getMaxMicros());
+    }
+
+    private static void assertWithin(long expected, long reported) {
+        assertTrue(reported >= expected && reported <= expected + expected / 16,
+                "expected about " + expected + " but was " + reported);
+    }
+}
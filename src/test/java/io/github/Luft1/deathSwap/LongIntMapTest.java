@@ -0,0 +1,98 @@
+package io.github.Luft1.deathSwap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongIntMapTest {
+
+    @Test
+    void countsIncrementsAndDecrements() {
+        LongIntMap map = new LongIntMap();
+        long key = ChunkTicketManager.chunkKey(3, -7);
+
+        assertEquals(1, map.increment(key));
+        assertEquals(2, map.increment(key));
+        assertEquals(2, map.get(key));
+        assertEquals(1, map.size());
+
+        assertEquals(1, map.decrement(key));
+        assertEquals(0, map.decrement(key));
+        assertEquals(0, map.get(key));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void decrementOfMissingKeyReturnsMinusOne() {
+        LongIntMap map = new LongIntMap();
+        map.increment(1L);
+
+        assertEquals(-1, map.decrement(2L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        LongIntMap map = new LongIntMap(4);
+        for (int x = -50; x < 50; x++) {
+            for (int z = -50; z < 50; z++) {
+                map.increment(ChunkTicketManager.chunkKey(x, z));
+            }
+        }
+
+        assertEquals(10_000, map.size());
+        for (int x = -50; x < 50; x++) {
+            for (int z = -50; z < 50; z++) {
+                assertEquals(1, map.get(ChunkTicketManager.chunkKey(x, z)));
+            }
+        }
+        Set<Long> keys = new HashSet<>();
+        map.forEachKey(keys::add);
+        assertEquals(10_000, keys.size());
+    }
+
+    @Test
+    void removalsKeepTheRemainingKeysReachable() {
+        // A small key range and many cycles, so removals keep shifting entries of shared probe runs.
+        LongIntMap map = new LongIntMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 200_000; i++) {
+            long key = ChunkTicketManager.chunkKey(random.nextInt(-20, 20), random.nextInt(-20, 20));
+            if (random.nextInt(3) == 0 || !expected.containsKey(key)) {
+                assertEquals((int) expected.merge(key, 1, Integer::sum), map.increment(key));
+            } else {
+                int count = expected.get(key) - 1;
+                if (count == 0) {
+                    expected.remove(key);
+                } else {
+                    expected.put(key, count);
+                }
+                assertEquals(count, map.decrement(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, count) -> assertEquals((int) count, map.get(key)));
+    }
+
+    @Test
+    void clearRemovesEverything() {
+        LongIntMap map = new LongIntMap();
+        for (long key = 0; key < 100; key++) {
+            map.increment(key);
+        }
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.get(42L));
+        assertEquals(1, map.increment(42L));
+    }
+}
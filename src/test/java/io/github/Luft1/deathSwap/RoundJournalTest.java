@@ -0,0 +1,100 @@
+package io.github.Luft1.deathSwap;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RoundJournalTest {
+
+    // The smallest ring buffer an enabled journal gets.
+    private static final int CAPACITY = 1024;
+
+    @Test
+    void ignoresEventsBeforeStart() {
+        RoundJournal journal = new RoundJournal(null, "test", true, CAPACITY);
+        journal.swap(1, 1, 10);
+
+        assertEquals(0, journal.drain(ByteBuffer.allocate(RoundJournal.RECORD_BYTES)));
+        assertEquals(0, journal.getDroppedCount());
+    }
+
+    @Test
+    void dropsEventsWhenFull() {
+        RoundJournal journal = new RoundJournal(null, "test", true, CAPACITY);
+        journal.startRecording();
+        for (int round = 0; round < CAPACITY; round++) {
+            journal.swap(round, round, 2);
+        }
+        assertEquals(0, journal.getDroppedCount());
+
+        journal.swap(CAPACITY, CAPACITY, 2);
+        journal.swap(CAPACITY + 1, CAPACITY + 1, 2);
+        assertEquals(2, journal.getDroppedCount());
+
+        // The buffer still holds the first CAPACITY events, in order; the dropped ones never appear.
+        ByteBuffer buffer = ByteBuffer.allocate((CAPACITY + 2) * RoundJournal.RECORD_BYTES);
+        assertEquals(CAPACITY, journal.drain(buffer));
+        buffer.flip();
+        for (int round = 0; round < CAPACITY; round++) {
+            assertRecord(buffer, RoundJournal.SWAP, round, 2);
+        }
+
+        // Draining frees the slots again.
+        journal.swap(0, CAPACITY + 2, 2);
+        assertEquals(2, journal.getDroppedCount());
+        assertEquals(1, journal.drain(ByteBuffer.allocate(RoundJournal.RECORD_BYTES)));
+    }
+
+    @Test
+    void wrapsAroundTheRingBuffer() {
+        RoundJournal journal = new RoundJournal(null, "test", true, CAPACITY);
+        journal.startRecording();
+        // Batches that do not divide the capacity, so reads and writes cross the end of the ring at different points.
+        int batch = 700;
+        int round = 0;
+        for (int pass = 0; pass < 5; pass++) {
+            for (int i = 0; i < batch; i++) {
+                journal.elimination(round + i, round + i, null, null, -1);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(batch * RoundJournal.RECORD_BYTES);
+            assertEquals(batch, journal.drain(buffer));
+            buffer.flip();
+            for (int i = 0; i < batch; i++) {
+                assertRecord(buffer, RoundJournal.ELIMINATION, round + i, -1);
+            }
+            round += batch;
+        }
+        assertEquals(0, journal.getDroppedCount());
+    }
+
+    @Test
+    void drainStopsWhenTheBufferIsFull() {
+        RoundJournal journal = new RoundJournal(null, "test", true, CAPACITY);
+        journal.startRecording();
+        for (int round = 0; round < 10; round++) {
+            journal.swap(round, round, 3);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 * RoundJournal.RECORD_BYTES + 1);
+        assertEquals(4, journal.drain(buffer));
+        ByteBuffer rest = ByteBuffer.allocate(10 * RoundJournal.RECORD_BYTES);
+        assertEquals(6, journal.drain(rest));
+        rest.flip();
+        for (int round = 4; round < 10; round++) {
+            assertRecord(rest, RoundJournal.SWAP, round, 3);
+        }
+    }
+
+    private static void assertRecord(ByteBuffer buffer, int type, int round, long value) {
+        long header = buffer.getLong();
+        assertEquals(type, (int) (header >>> 32));
+        assertEquals(round, (int) header);
+        // Tick, nanoTime and the two UUIDs.
+        for (int i = 1; i < RoundJournal.RECORD_LONGS - 1; i++) {
+            buffer.getLong();
+        }
+        assertEquals(value, buffer.getLong());
+    }
+}